@@ -33,6 +33,17 @@ class SMPPSimulator:
         self.host = host
         self.port = port
         self.message_id_counter = 1
+        self.counter_lock = threading.Lock()
+        
+    def recv_exact(self, conn, size):
+        """Lee exactamente size bytes (con ventana > 1 los PDUs llegan concatenados)"""
+        data = b''
+        while len(data) < size:
+            chunk = conn.recv(size - len(data))
+            if not chunk:
+                return None
+            data += chunk
+        return data
         
     def create_pdu(self, command_id, status, sequence, body=b''):
         """Crea un PDU SMPP"""
@@ -107,8 +118,9 @@ class SMPPSimulator:
             print(f"   ⚠️  Error parseando: {e}")
         
         # Generar message_id único
-        message_id = f"MSG{self.message_id_counter:08d}".encode('utf-8') + b'\x00'
-        self.message_id_counter += 1
+        with self.counter_lock:
+            message_id = f"MSG{self.message_id_counter:08d}".encode('utf-8') + b'\x00'
+            self.message_id_counter += 1
         
         # Responder con SUBMIT_SM_RESP
         response = self.create_pdu(SUBMIT_SM_RESP, ESME_ROK, pdu['sequence'], message_id)
@@ -141,8 +153,8 @@ class SMPPSimulator:
             
             while True:
                 # Leer PDU
-                header = conn.recv(16)
-                if not header or len(header) < 16:
+                header = self.recv_exact(conn, 16)
+                if not header:
                     break
                 
                 length = struct.unpack('>I', header[:4])[0]
@@ -150,7 +162,9 @@ class SMPPSimulator:
                 
                 body = b''
                 if body_length > 0:
-                    body = conn.recv(body_length)
+                    body = self.recv_exact(conn, body_length)
+                    if body is None:
+                        break
                 
                 pdu = self.parse_pdu(header + body)
                 if not pdu:
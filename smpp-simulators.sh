@@ -0,0 +1,35 @@
+#!/usr/bin/env bash
+# Levanta varias instancias de smpp-simulator.py en puertos consecutivos
+# para probar el pool de sesiones SMPP en local.
+#
+# Uso: ./smpp-simulators.sh [instancias] [puerto-base]
+#   ./smpp-simulators.sh 3 2775   -> localhost:2775, localhost:2776, localhost:2777
+
+set -euo pipefail
+
+INSTANCES="${1:-3}"
+BASE_PORT="${2:-2775}"
+DIR="$(cd "$(dirname "$0")" && pwd)"
+mkdir -p "$DIR/logs"
+PIDS=()
+HOSTS=()
+
+cleanup() {
+    kill "${PIDS[@]}" 2>/dev/null || true
+}
+trap cleanup EXIT INT TERM
+
+for ((i = 0; i < INSTANCES; i++)); do
+    PORT=$((BASE_PORT + i))
+    python3 -u "$DIR/smpp-simulator.py" "$PORT" > "$DIR/logs/smpp-simulator-$PORT.log" 2>&1 &
+    PIDS+=($!)
+    HOSTS+=("localhost:$PORT")
+    echo "Simulador SMPP en localhost:$PORT (log: logs/smpp-simulator-$PORT.log)"
+done
+
+echo
+echo "Arranca el servicio con:"
+echo "  ./gradlew bootRun --args='--smpp.hosts=$(IFS=,; echo "${HOSTS[*]}") --smpp.sessionsPerHost=2'"
+echo
+echo "Ctrl+C para detener los simuladores"
+wait
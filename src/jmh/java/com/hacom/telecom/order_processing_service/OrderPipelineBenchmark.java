@@ -0,0 +1,91 @@
+package com.hacom.telecom.order_processing_service;
+
+import com.hacom.telecom.order_processing_service.grpc.CreateOrderRequest;
+import com.hacom.telecom.order_processing_service.support.LatchObserver;
+import com.hacom.telecom.order_processing_service.support.Orders;
+import com.hacom.telecom.order_processing_service.support.PipelineFixture;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * End to end create path: OrderPipeline admission, OrderCodec encoding/persistence (in memory)
+ * and response, then the status update in the notify stage. The SMS notification goes to the stub SMSC in the
+ * background, as in production, so its CPU and allocations are included but not its latency.
+ *
+ * ./gradlew jmh -PjmhIncludes=OrderPipelineBenchmark   (gc profiler enabled in build.gradle)
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class OrderPipelineBenchmark {
+
+    private static final int BURST = 1000;
+
+    @Param({"1", "256"})
+    private int persistParallelism;
+
+    @Param({"3"})
+    private int items;
+
+    @Param({"platform", "virtual"})
+    private String smppThreadMode;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private PipelineFixture fixture;
+
+    @Setup
+    public void setup() throws Exception {
+        fixture = new PipelineFixture(persistParallelism, Integer.MAX_VALUE, smppThreadMode);
+    }
+
+    @TearDown(Level.Iteration)
+    public void clearOrders() {
+        fixture.getOrderService().clear();
+    }
+
+    @TearDown
+    public void tearDown() {
+        fixture.close();
+    }
+
+    /**
+     * Latency of a single order on an otherwise idle pipeline
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    public void singleOrder() throws InterruptedException {
+        LatchObserver observer = new LatchObserver(1);
+        submit(observer);
+        observer.await();
+    }
+
+    /**
+     * Throughput with BURST orders in flight at once, persisted persistParallelism at a time
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OperationsPerInvocation(BURST)
+    public void burst() throws InterruptedException {
+        LatchObserver observer = new LatchObserver(BURST);
+        for (int i = 0; i < BURST; i++) {
+            submit(observer);
+        }
+        observer.await();
+    }
+
+    private void submit(LatchObserver observer) {
+        CreateOrderRequest request = Orders.request("ORD-" + sequence.incrementAndGet(), items);
+        fixture.getOrderPipeline().processOrder(request, observer);
+    }
+}
@@ -0,0 +1,45 @@
+package com.hacom.telecom.order_processing_service.grpc;
+
+import com.hacom.telecom.order_processing_service.service.OrderCodec;
+import com.hacom.telecom.order_processing_service.support.Orders;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CreateOrderRequest -> insert-ready BSON done by OrderService, plus parsing the request bytes
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ProtoMappingBenchmark {
+
+    @Param({"1", "10", "50"})
+    private int items;
+
+    private CreateOrderRequest request;
+    private byte[] requestBytes;
+
+    @Setup
+    public void setup() {
+        request = Orders.request("ORD-BENCH", items);
+        requestBytes = request.toByteArray();
+    }
+
+    @Benchmark
+    public OrderCodec.NewOrder toDocument() {
+        return OrderCodec.newOrder(request, "PENDING");
+    }
+
+    @Benchmark
+    public OrderCodec.NewOrder parseAndEncode() throws Exception {
+        return OrderCodec.newOrder(CreateOrderRequest.parseFrom(requestBytes), "PENDING");
+    }
+}
@@ -0,0 +1,79 @@
+package com.hacom.telecom.order_processing_service.model;
+
+import com.hacom.telecom.order_processing_service.grpc.CreateOrderRequest;
+import com.hacom.telecom.order_processing_service.service.OrderCodec;
+import com.hacom.telecom.order_processing_service.support.MongoMapping;
+import com.hacom.telecom.order_processing_service.support.Orders;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DocumentCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Order <-> BSON bytes, comparing the reflective MappingMongoConverter path (mapped*) with
+ * OrderCodec (codec*). Both sides start and end at the bytes the driver sends or receives;
+ * compare gc.alloc.rate.norm for the allocation per order.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class OrderMongoMappingBenchmark {
+
+    @Param({"1", "10", "50"})
+    private int items;
+
+    private final DocumentCodec documentCodec = new DocumentCodec();
+    private final OrderCodec orderCodec = new OrderCodec();
+    private MappingMongoConverter converter;
+    private CreateOrderRequest request;
+    private RawBsonDocument stored;
+
+    @Setup
+    public void setup() {
+        converter = MongoMapping.converter();
+        request = Orders.request("ORD-BENCH", items);
+        stored = OrderCodec.newOrder(request, "PENDING").getDocument();
+    }
+
+    /**
+     * Previous create path: proto items copied to OrderItem, Order mapped to a Document, Document encoded
+     */
+    @Benchmark
+    public RawBsonDocument mappedWrite() {
+        List<OrderItem> orderItems = new ArrayList<>(request.getItemsCount());
+        for (com.hacom.telecom.order_processing_service.grpc.OrderItem item : request.getItemsList()) {
+            orderItems.add(new OrderItem(item.getItemId(), item.getProductName(), item.getQuantity(), item.getPrice()));
+        }
+        Order order = new Order(request.getOrderId(), request.getCustomerId(), request.getCustomerPhone(), orderItems, "PENDING");
+        Document document = new Document();
+        converter.write(order, document);
+        return new RawBsonDocument(document, documentCodec);
+    }
+
+    @Benchmark
+    public RawBsonDocument codecWrite() {
+        return OrderCodec.newOrder(request, "PENDING").getDocument();
+    }
+
+    @Benchmark
+    public Order mappedRead() {
+        return converter.read(Order.class, stored.decode(documentCodec));
+    }
+
+    @Benchmark
+    public Order codecRead() {
+        return stored.decode(orderCodec);
+    }
+}
@@ -0,0 +1,50 @@
+package com.hacom.telecom.order_processing_service.service;
+
+import com.cloudhopper.commons.charset.CharsetUtil;
+import com.cloudhopper.smpp.pdu.SubmitSm;
+import com.cloudhopper.smpp.transcoder.DefaultPduTranscoder;
+import com.cloudhopper.smpp.transcoder.DefaultPduTranscoderContext;
+import com.cloudhopper.smpp.transcoder.PduTranscoder;
+import com.cloudhopper.smpp.type.Address;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GSM 03.38 encoding of the notification text and the SubmitSm PDU built by SmppClientService
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class GsmEncodingBenchmark {
+
+    private final String message = "Your order ORD-1234567890 has been processed";
+    private PduTranscoder transcoder;
+
+    @Setup
+    public void setup() {
+        transcoder = new DefaultPduTranscoder(new DefaultPduTranscoderContext());
+    }
+
+    @Benchmark
+    public byte[] encodeGsm() {
+        return CharsetUtil.encode(message, CharsetUtil.CHARSET_GSM);
+    }
+
+    @Benchmark
+    public ChannelBuffer encodeSubmitSm() throws Exception {
+        SubmitSm submit = new SubmitSm();
+        submit.setSourceAddress(new Address((byte) 0x05, (byte) 0x00, "HACOM"));
+        submit.setDestAddress(new Address((byte) 0x01, (byte) 0x01, "+51987654321"));
+        submit.setShortMessage(CharsetUtil.encode(message, CharsetUtil.CHARSET_GSM));
+        submit.setSequenceNumber(1);
+        return transcoder.encode(submit);
+    }
+}
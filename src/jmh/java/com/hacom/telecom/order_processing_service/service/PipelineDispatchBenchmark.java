@@ -0,0 +1,92 @@
+package com.hacom.telecom.order_processing_service.service;
+
+import akka.actor.ActorSystem;
+import com.hacom.telecom.order_processing_service.config.ActorProperties;
+import com.hacom.telecom.order_processing_service.config.AkkaConfig;
+import com.hacom.telecom.order_processing_service.config.PipelineProperties;
+import com.hacom.telecom.order_processing_service.grpc.CreateOrderRequest;
+import com.hacom.telecom.order_processing_service.model.Order;
+import com.hacom.telecom.order_processing_service.model.SmsOutboxEntry;
+import com.hacom.telecom.order_processing_service.support.LatchObserver;
+import com.hacom.telecom.order_processing_service.support.Orders;
+import com.hacom.telecom.order_processing_service.support.PipelineFixture;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Element hand-off through the OrderPipeline stages on the order dispatcher, with persistence and
+ * notification stubbed out so only packing, encoding, the stage boundaries and response building
+ * are measured
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PipelineDispatchBenchmark {
+
+    private static final int BURST = 1000;
+
+    private CreateOrderRequest[] requests;
+    private ActorSystem actorSystem;
+    private OrderPipeline orderPipeline;
+
+    @Setup
+    public void setup() {
+        ActorProperties actorProperties = new ActorProperties();
+        actorSystem = new AkkaConfig().actorSystem(actorProperties);
+        requests = new CreateOrderRequest[BURST];
+        for (int i = 0; i < BURST; i++) {
+            requests[i] = Orders.request("ORD-" + i, 3);
+        }
+        PipelineProperties pipelineProperties = new PipelineProperties();
+        pipelineProperties.setIngestBuffer(BURST);
+        orderPipeline = PipelineFixture.orderPipeline(actorSystem, actorProperties, pipelineProperties,
+                new SimpleMeterRegistry(), new ImmediateOrderService(), new NoOpSmsOutboxService());
+    }
+
+    @TearDown
+    public void tearDown() {
+        orderPipeline.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public void burst() throws InterruptedException {
+        LatchObserver observer = new LatchObserver(BURST);
+        for (int i = 0; i < BURST; i++) {
+            orderPipeline.processOrder(requests[i], observer);
+        }
+        observer.await();
+    }
+
+    private static class ImmediateOrderService extends OrderService {
+
+        @Override
+        public Mono<Order> createOrder(OrderCodec.NewOrder newOrder) {
+            return Mono.just(newOrder.getOrder());
+        }
+
+        @Override
+        public Mono<String> updateStatus(String orderId, String expectedStatus, String newStatus) {
+            return Mono.just(newStatus);
+        }
+    }
+
+    private static class NoOpSmsOutboxService extends SmsOutboxService {
+
+        @Override
+        public Mono<SmsOutboxEntry> enqueueOrderProcessedNotification(String orderId, String phoneNumber) {
+            return Mono.empty();
+        }
+    }
+}
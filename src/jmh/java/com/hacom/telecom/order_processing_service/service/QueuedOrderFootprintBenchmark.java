@@ -0,0 +1,95 @@
+package com.hacom.telecom.order_processing_service.service;
+
+import com.hacom.telecom.order_processing_service.config.PipelineProperties;
+import com.hacom.telecom.order_processing_service.grpc.CreateOrderRequest;
+import com.hacom.telecom.order_processing_service.support.Orders;
+import com.hacom.telecom.order_processing_service.support.PipelineFixture;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Heap retained per queued order: QUEUED orders are held at once, as during an SMSC or Mongo
+ * brownout, and the heap is measured after a full GC. "request" keeps the parsed protobuf
+ * graph (what ProcessOrder held before), "packed" a PackedOrder on the heap and "offHeap" a
+ * PackedOrder in a direct slab chunk. Read the heapBytesPerOrder counter, not the time.
+ *
+ * ./gradlew jmh -PjmhIncludes=QueuedOrderFootprintBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class QueuedOrderFootprintBenchmark {
+
+    private static final int QUEUED = 50_000;
+
+    @Param({"request", "packed", "offHeap"})
+    private String form;
+
+    @Param({"3"})
+    private int items;
+
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private byte[][] wireRequests;
+    private OrderPacker orderPacker;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Footprint {
+        public long heapBytesPerOrder;
+    }
+
+    @Setup
+    public void setup() {
+        wireRequests = new byte[QUEUED][];
+        for (int i = 0; i < QUEUED; i++) {
+            wireRequests[i] = Orders.request("ORD-" + i, items).toByteArray();
+        }
+
+        PipelineProperties pipelineProperties = new PipelineProperties();
+        pipelineProperties.setOffHeapEnabled("offHeap".equals(form));
+        pipelineProperties.setOffHeapSlabBytes((long) QUEUED * pipelineProperties.getOffHeapChunkBytes());
+        orderPacker = PipelineFixture.orderPacker(pipelineProperties, new SimpleMeterRegistry());
+    }
+
+    @Benchmark
+    public Object[] queue(Footprint footprint) throws Exception {
+        Object[] queued = new Object[QUEUED];
+        long before = usedHeap();
+        for (int i = 0; i < QUEUED; i++) {
+            // Parsed from the wire like gRPC does, so nothing is shared with the setup
+            CreateOrderRequest request = CreateOrderRequest.parseFrom(wireRequests[i]);
+            queued[i] = "request".equals(form) ? request : orderPacker.pack(request);
+        }
+        footprint.heapBytesPerOrder = (usedHeap() - before) / QUEUED;
+
+        for (Object order : queued) {
+            if (order instanceof PackedOrder) {
+                ((PackedOrder) order).release();
+            }
+        }
+        return queued;
+    }
+
+    private long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,51 @@
+package com.hacom.telecom.order_processing_service.service;
+
+import com.hacom.telecom.order_processing_service.support.Orders;
+import com.hacom.telecom.order_processing_service.support.PipelineFixture;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SubmitSm round trip through the SmppClientService queue and the session pool against the stub SMSC,
+ * with submits on platform or virtual threads (smpp.threadMode). The virtual run needs -PjavaVersion=21;
+ * on Java 17 it falls back to the platform pool and measures the same thing twice.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SmppSubmitBenchmark {
+
+    @Param({"platform", "virtual"})
+    private String threadMode;
+
+    private PipelineFixture fixture;
+
+    @Setup
+    public void setup() throws Exception {
+        fixture = new PipelineFixture(1, Integer.MAX_VALUE, threadMode);
+    }
+
+    @TearDown
+    public void tearDown() {
+        fixture.close();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Boolean submit() {
+        return fixture.getSmppClientService()
+                .sendOrderProcessedNotification("ORD-BENCH", Orders.CUSTOMER_PHONE)
+                .toCompletableFuture()
+                .join();
+    }
+}
@@ -0,0 +1,47 @@
+package com.hacom.telecom.order_processing_service.support;
+
+import com.hacom.telecom.order_processing_service.model.Order;
+import com.hacom.telecom.order_processing_service.service.OrderCodec;
+import com.hacom.telecom.order_processing_service.service.OrderService;
+import org.bson.RawBsonDocument;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * OrderService stand-in that keeps the encoded BSON documents in memory.
+ * Orders still go through the real OrderCodec so the encoding cost stays in the measurement.
+ */
+public class InMemoryOrderService extends OrderService {
+
+    private final OrderCodec codec = new OrderCodec();
+    private final Map<String, RawBsonDocument> orders = new ConcurrentHashMap<>();
+    private final Map<String, String> statuses = new ConcurrentHashMap<>();
+
+    @Override
+    public Mono<Order> createOrder(OrderCodec.NewOrder newOrder) {
+        String orderId = newOrder.getOrder().getOrderId();
+        RawBsonDocument existing = orders.putIfAbsent(orderId, newOrder.getDocument());
+        if (existing == null) {
+            statuses.put(orderId, newOrder.getOrder().getStatus());
+            return Mono.just(newOrder.getOrder());
+        }
+        Order order = existing.decode(codec);
+        order.setStatus(statuses.get(orderId));
+        order.setDuplicate(true);
+        return Mono.just(order);
+    }
+
+    @Override
+    public Mono<String> updateStatus(String orderId, String expectedStatus, String newStatus) {
+        String updated = statuses.computeIfPresent(orderId,
+                (id, status) -> expectedStatus == null || expectedStatus.equals(status) ? newStatus : status);
+        return newStatus.equals(updated) ? Mono.just(newStatus) : Mono.empty();
+    }
+
+    public void clear() {
+        orders.clear();
+        statuses.clear();
+    }
+}
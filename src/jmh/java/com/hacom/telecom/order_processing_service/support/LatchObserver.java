@@ -0,0 +1,39 @@
+package com.hacom.telecom.order_processing_service.support;
+
+import com.hacom.telecom.order_processing_service.grpc.CreateOrderResponse;
+import io.grpc.stub.StreamObserver;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counts down once per answered order (onCompleted or onError)
+ */
+public class LatchObserver implements StreamObserver<CreateOrderResponse> {
+
+    private final CountDownLatch latch;
+
+    public LatchObserver(int orders) {
+        this.latch = new CountDownLatch(orders);
+    }
+
+    @Override
+    public void onNext(CreateOrderResponse response) {
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        latch.countDown();
+    }
+
+    @Override
+    public void onCompleted() {
+        latch.countDown();
+    }
+
+    public void await() throws InterruptedException {
+        if (!latch.await(30, TimeUnit.SECONDS)) {
+            throw new IllegalStateException(latch.getCount() + " orders were not answered");
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.hacom.telecom.order_processing_service.support;
+
+import com.hacom.telecom.order_processing_service.config.MongoConfig;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+/**
+ * Builds the same document converter the application uses, without a MongoDB connection
+ */
+public final class MongoMapping {
+
+    private MongoMapping() {
+    }
+
+    public static MappingMongoConverter converter() {
+        MongoCustomConversions conversions = new MongoConfig().customConversions();
+
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        mappingContext.afterPropertiesSet();
+
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        return converter;
+    }
+}
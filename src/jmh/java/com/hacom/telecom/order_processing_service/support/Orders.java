@@ -0,0 +1,29 @@
+package com.hacom.telecom.order_processing_service.support;
+
+import com.hacom.telecom.order_processing_service.grpc.CreateOrderRequest;
+
+/**
+ * Sample orders shared by the benchmarks
+ */
+public final class Orders {
+
+    public static final String CUSTOMER_PHONE = "+51987654321";
+
+    private Orders() {
+    }
+
+    public static CreateOrderRequest request(String orderId, int itemCount) {
+        CreateOrderRequest.Builder builder = CreateOrderRequest.newBuilder()
+                .setOrderId(orderId)
+                .setCustomerId("CUST-0001")
+                .setCustomerPhone(CUSTOMER_PHONE);
+        for (int i = 0; i < itemCount; i++) {
+            builder.addItems(com.hacom.telecom.order_processing_service.grpc.OrderItem.newBuilder()
+                    .setItemId("ITEM-" + i)
+                    .setProductName("Product " + i)
+                    .setQuantity(i + 1)
+                    .setPrice(9.99 + i));
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,187 @@
+package com.hacom.telecom.order_processing_service.support;
+
+import akka.actor.ActorSystem;
+import com.hacom.telecom.order_processing_service.config.ActorProperties;
+import com.hacom.telecom.order_processing_service.config.AkkaConfig;
+import com.hacom.telecom.order_processing_service.config.MetricsConfig;
+import com.hacom.telecom.order_processing_service.config.OrderProperties;
+import com.hacom.telecom.order_processing_service.config.PipelineProperties;
+import com.hacom.telecom.order_processing_service.config.SmppProperties;
+import com.hacom.telecom.order_processing_service.model.SmsOutboxEntry;
+import com.hacom.telecom.order_processing_service.service.BlockingExecutors;
+import com.hacom.telecom.order_processing_service.service.OrderPacker;
+import com.hacom.telecom.order_processing_service.service.OrderPipeline;
+import com.hacom.telecom.order_processing_service.service.OrderService;
+import com.hacom.telecom.order_processing_service.service.OrderStageTimers;
+import com.hacom.telecom.order_processing_service.service.OrderSummaryLogger;
+import com.hacom.telecom.order_processing_service.service.SmppClientService;
+import com.hacom.telecom.order_processing_service.service.SmppSessionPool;
+import com.hacom.telecom.order_processing_service.service.SmsOutboxService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+/**
+ * Wires the order create path by hand, without a Spring context:
+ * OrderPipeline -> InMemoryOrderService, with the SMS notification
+ * sent straight through SmppClientService/SmppSessionPool to a StubSmppServer.
+ */
+public class PipelineFixture implements AutoCloseable {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final MetricsConfig metricsConfig = new MetricsConfig();
+
+    private final StubSmppServer smsc;
+    private final SmppSessionPool smppSessionPool;
+    private final SmppClientService smppClientService;
+    private final ActorSystem actorSystem;
+    private final OrderPipeline orderPipeline;
+    private final InMemoryOrderService orderService;
+
+    public PipelineFixture(int persistParallelism, int maxInFlight) throws Exception {
+        this(persistParallelism, maxInFlight, BlockingExecutors.PLATFORM);
+    }
+
+    /**
+     * smppThreadMode is smpp.threadMode: "platform" or "virtual" (needs -PjavaVersion=21)
+     */
+    public PipelineFixture(int persistParallelism, int maxInFlight, String smppThreadMode) throws Exception {
+        smsc = new StubSmppServer();
+
+        OrderStageTimers orderStageTimers = orderStageTimers(meterRegistry);
+
+        SmppProperties smppProperties = new SmppProperties();
+        smppProperties.setEnabled(true);
+        smppProperties.setHost("127.0.0.1");
+        smppProperties.setPort(smsc.getPort());
+        smppProperties.setSystemId("bench");
+        smppProperties.setPassword("bench");
+        smppProperties.setWindowSize(512);
+        smppProperties.setSessionsPerHost(2);
+        smppProperties.setQueueCapacity(1_000_000);
+        smppProperties.setDispatchInterval(1);
+        smppProperties.setThreadMode(smppThreadMode);
+
+        smppSessionPool = new SmppSessionPool();
+        setField(smppSessionPool, "smppProperties", smppProperties);
+        setField(smppSessionPool, "meterRegistry", meterRegistry);
+        smppSessionPool.init();
+
+        smppClientService = new SmppClientService();
+        setField(smppClientService, "smppProperties", smppProperties);
+        setField(smppClientService, "smsSentCounter", metricsConfig.smsSentCounter(meterRegistry));
+        setField(smppClientService, "smsFailedCounter", metricsConfig.smsFailedCounter(meterRegistry));
+        setField(smppClientService, "smsThrottledCounter", metricsConfig.smsThrottledCounter(meterRegistry));
+        setField(smppClientService, "meterRegistry", meterRegistry);
+        setField(smppClientService, "smppSessionPool", smppSessionPool);
+        setField(smppClientService, "orderStageTimers", orderStageTimers);
+        smppClientService.init();
+
+        orderService = new InMemoryOrderService();
+
+        ActorProperties actorProperties = new ActorProperties();
+        actorSystem = new AkkaConfig().actorSystem(actorProperties);
+
+        PipelineProperties pipelineProperties = new PipelineProperties();
+        pipelineProperties.setPersistParallelism(persistParallelism);
+        pipelineProperties.setMaxInFlight(maxInFlight);
+        // Benchmarks measure the stages, not admission: never reject on a full ingest buffer
+        pipelineProperties.setIngestBuffer(Math.min(maxInFlight, 1 << 16));
+
+        orderPipeline = orderPipeline(actorSystem, actorProperties, pipelineProperties, meterRegistry,
+                orderService, new DirectSmsOutboxService(smppClientService));
+
+        awaitBound();
+    }
+
+    public OrderPipeline getOrderPipeline() {
+        return orderPipeline;
+    }
+
+    public InMemoryOrderService getOrderService() {
+        return orderService;
+    }
+
+    public SmppClientService getSmppClientService() {
+        return smppClientService;
+    }
+
+    public static OrderPipeline orderPipeline(ActorSystem actorSystem, ActorProperties actorProperties,
+                                              PipelineProperties pipelineProperties, MeterRegistry meterRegistry,
+                                              OrderService orderService, SmsOutboxService smsOutboxService) {
+        OrderPipeline orderPipeline = new OrderPipeline();
+        setField(orderPipeline, "actorSystem", actorSystem);
+        setField(orderPipeline, "actorProperties", actorProperties);
+        setField(orderPipeline, "pipelineProperties", pipelineProperties);
+        setField(orderPipeline, "meterRegistry", meterRegistry);
+        setField(orderPipeline, "ordersRejectedCounter", new MetricsConfig().ordersRejectedCounter(meterRegistry));
+        setField(orderPipeline, "orderService", orderService);
+        setField(orderPipeline, "smsOutboxService", smsOutboxService);
+        setField(orderPipeline, "orderStageTimers", orderStageTimers(meterRegistry));
+        setField(orderPipeline, "orderSummaryLogger", orderSummaryLogger(new OrderProperties()));
+        setField(orderPipeline, "orderPacker", orderPacker(pipelineProperties, meterRegistry));
+        orderPipeline.init();
+        return orderPipeline;
+    }
+
+    public static OrderPacker orderPacker(PipelineProperties pipelineProperties, MeterRegistry meterRegistry) {
+        OrderPacker orderPacker = new OrderPacker();
+        setField(orderPacker, "pipelineProperties", pipelineProperties);
+        setField(orderPacker, "meterRegistry", meterRegistry);
+        orderPacker.init();
+        return orderPacker;
+    }
+
+    public static OrderStageTimers orderStageTimers(MeterRegistry meterRegistry) {
+        OrderStageTimers orderStageTimers = new OrderStageTimers();
+        setField(orderStageTimers, "meterRegistry", meterRegistry);
+        orderStageTimers.init();
+        return orderStageTimers;
+    }
+
+    public static OrderSummaryLogger orderSummaryLogger(OrderProperties orderProperties) {
+        OrderSummaryLogger orderSummaryLogger = new OrderSummaryLogger();
+        setField(orderSummaryLogger, "orderProperties", orderProperties);
+        return orderSummaryLogger;
+    }
+
+    private void awaitBound() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!smppSessionPool.hasBoundSession()) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("SMPP stub server did not accept the bind");
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    @Override
+    public void close() {
+        orderPipeline.shutdown();
+        smppClientService.destroy();
+        smppSessionPool.destroy();
+        smsc.close();
+    }
+
+    /**
+     * Sends the notification immediately instead of going through the Mongo-backed outbox
+     */
+    private static class DirectSmsOutboxService extends SmsOutboxService {
+
+        private final SmppClientService smppClientService;
+
+        DirectSmsOutboxService(SmppClientService smppClientService) {
+            this.smppClientService = smppClientService;
+        }
+
+        @Override
+        public Mono<SmsOutboxEntry> enqueueOrderProcessedNotification(String orderId, String phoneNumber) {
+            return Mono.fromCompletionStage(smppClientService.sendOrderProcessedNotification(orderId, phoneNumber))
+                    .thenReturn(new SmsOutboxEntry(orderId, phoneNumber));
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.hacom.telecom.order_processing_service.support;
+
+import com.cloudhopper.smpp.SmppServerConfiguration;
+import com.cloudhopper.smpp.SmppServerHandler;
+import com.cloudhopper.smpp.SmppServerSession;
+import com.cloudhopper.smpp.SmppSessionConfiguration;
+import com.cloudhopper.smpp.impl.DefaultSmppServer;
+import com.cloudhopper.smpp.impl.DefaultSmppSessionHandler;
+import com.cloudhopper.smpp.pdu.BaseBind;
+import com.cloudhopper.smpp.pdu.BaseBindResp;
+import com.cloudhopper.smpp.pdu.PduRequest;
+import com.cloudhopper.smpp.pdu.PduResponse;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+
+/**
+ * In-process SMSC stand-in: accepts any bind and answers every request with ESME_ROK
+ */
+public class StubSmppServer implements AutoCloseable {
+
+    private final DefaultSmppServer server;
+    private final int port;
+
+    public StubSmppServer() throws Exception {
+        this.port = freePort();
+
+        SmppServerConfiguration config = new SmppServerConfiguration();
+        config.setName("StubSmsc");
+        config.setHost("127.0.0.1");
+        config.setPort(port);
+        config.setMaxConnectionSize(64);
+        config.setNonBlockingSocketsEnabled(true);
+        config.setDefaultRequestExpiryTimeout(30000);
+        config.setDefaultWindowMonitorInterval(15000);
+        config.setDefaultWindowSize(1024);
+        config.setDefaultSessionCountersEnabled(false);
+        config.setJmxEnabled(false);
+
+        server = new DefaultSmppServer(config, new AcceptAllHandler());
+        server.start();
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    @Override
+    public void close() {
+        server.stop();
+        server.destroy();
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static class AcceptAllHandler implements SmppServerHandler {
+
+        @Override
+        public void sessionBindRequested(Long sessionId, SmppSessionConfiguration sessionConfiguration, BaseBind bindRequest) {
+        }
+
+        @Override
+        public void sessionCreated(Long sessionId, SmppServerSession session, BaseBindResp preparedBindResponse) {
+            session.serverReady(new DefaultSmppSessionHandler() {
+                @Override
+                public PduResponse firePduRequestReceived(PduRequest pduRequest) {
+                    return pduRequest.createResponse();
+                }
+            });
+        }
+
+        @Override
+        public void sessionDestroyed(Long sessionId, SmppServerSession session) {
+            session.destroy();
+        }
+    }
+}
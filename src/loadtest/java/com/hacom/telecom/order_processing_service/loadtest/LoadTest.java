@@ -0,0 +1,403 @@
+package com.hacom.telecom.order_processing_service.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.hacom.telecom.order_processing_service.grpc.CreateOrderRequest;
+import com.hacom.telecom.order_processing_service.grpc.CreateOrderResponse;
+import com.hacom.telecom.order_processing_service.grpc.OrderServiceGrpc;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop load generator for OrderService/CreateOrder and OrderService/CreateOrders.
+ *
+ * Requests are sent on a fixed schedule (--rate per second) regardless of how fast the
+ * server answers. Latency is measured from the time each request was scheduled to be sent,
+ * so a stalled server shows up in the percentiles instead of silently lowering the send
+ * rate (coordinated omission); the uncorrected service time is reported alongside.
+ *
+ * Requests that never got an answer still count in the corrected percentiles: a request shed
+ * because --max-outstanding was reached is recorded at --deadline, and one still unanswered
+ * when the run gives up waiting at the time it had been waiting. Both are lower bounds, so the
+ * summary reports how many such censored samples the corrected histogram holds.
+ *
+ * ./gradlew loadtest -PloadtestArgs="--rate=2000 --duration=60 --channels=16 --mode=stream"
+ */
+public class LoadTest {
+
+    private static final long SPIN_THRESHOLD_NANOS = 50_000;
+
+    private final LoadTestOptions options;
+    private final RequestSource requestSource;
+    private final List<ManagedChannel> channels = new ArrayList<>();
+    private final List<StreamSession> streams = new ArrayList<>();
+
+    private final Recorder corrected = new Recorder(3);
+    private final Recorder uncorrected = new Recorder(3);
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final Set<Call> inFlight = ConcurrentHashMap.newKeySet();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+    private final LongAdder censored = new LongAdder();
+    private final LongAdder streamsReopened = new LongAdder();
+    private final Map<String, LongAdder> grpcStatus = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> responseStatus = new ConcurrentHashMap<>();
+
+    LoadTest(LoadTestOptions options) throws Exception {
+        this.options = options;
+        this.requestSource = new RequestSource(options);
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        Map<String, Object> summary = new LoadTest(options).run();
+
+        ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        Path output = Path.of(options.output);
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        mapper.writeValue(output.toFile(), summary);
+        System.out.println(mapper.writeValueAsString(summary));
+        System.out.println("Summary written to " + output.toAbsolutePath());
+    }
+
+    Map<String, Object> run() throws InterruptedException {
+        for (int i = 0; i < options.channels; i++) {
+            ManagedChannel channel = ManagedChannelBuilder.forTarget(options.target).usePlaintext().build();
+            channels.add(channel);
+            if ("stream".equals(options.mode)) {
+                streams.add(new StreamSession(channel));
+            }
+        }
+
+        Instant startedAt = Instant.now();
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / options.rate);
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(options.warmup);
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(options.duration);
+
+        // Discard whatever the warmup recorded when measurement starts
+        boolean measuring = false;
+        long measuredSent = 0;
+        for (long i = 0; ; i++) {
+            long intended = start + i * intervalNanos;
+            if (intended >= end) {
+                break;
+            }
+            waitUntil(intended);
+
+            if (!measuring && intended >= measureFrom) {
+                measuring = true;
+                corrected.reset();
+                uncorrected.reset();
+                censored.reset();
+            }
+
+            if (outstanding.get() >= options.maxOutstanding) {
+                // The server is hopelessly behind; count the request instead of queueing it on our heap.
+                // It would have waited at least until its deadline, so that is its corrected latency
+                shed.increment();
+                if (measuring) {
+                    corrected.recordValue(TimeUnit.MILLISECONDS.toMicros(options.deadline));
+                    censored.increment();
+                }
+                continue;
+            }
+
+            CreateOrderRequest request = requestSource.next();
+            outstanding.incrementAndGet();
+            sent.increment();
+            if (measuring) {
+                measuredSent++;
+            }
+            Call call = new Call(intended, measuring);
+            inFlight.add(call);
+            if (streams.isEmpty()) {
+                sendUnary(channels.get((int) (i % channels.size())), request, call);
+            } else {
+                streams.get((int) (i % streams.size())).send(request, call);
+            }
+        }
+
+        streams.forEach(StreamSession::close);
+        awaitOutstanding();
+        abandonOutstanding();
+        channels.forEach(ManagedChannel::shutdownNow);
+
+        return summary(startedAt, measuredSent);
+    }
+
+    private void sendUnary(ManagedChannel channel, CreateOrderRequest request, Call call) {
+        OrderServiceGrpc.newStub(channel)
+                .withDeadlineAfter(options.deadline, TimeUnit.MILLISECONDS)
+                .createOrder(request, new StreamObserver<>() {
+                    @Override
+                    public void onNext(CreateOrderResponse response) {
+                        count(responseStatus, response.getStatus());
+                    }
+
+                    @Override
+                    public void onError(Throwable t) {
+                        complete(call, Status.fromThrowable(t).getCode().name());
+                    }
+
+                    @Override
+                    public void onCompleted() {
+                        complete(call, Status.Code.OK.name());
+                    }
+                });
+    }
+
+    private void complete(Call call, String status) {
+        if (!inFlight.remove(call)) {
+            // Already given up on by abandonOutstanding
+            return;
+        }
+        long now = System.nanoTime();
+        if (call.measured) {
+            corrected.recordValue(TimeUnit.NANOSECONDS.toMicros(now - call.intended));
+            uncorrected.recordValue(TimeUnit.NANOSECONDS.toMicros(now - call.sentAt));
+        }
+        count(grpcStatus, status);
+        completed.increment();
+        outstanding.decrementAndGet();
+    }
+
+    private static void count(Map<String, LongAdder> counters, String key) {
+        counters.computeIfAbsent(key, k -> new LongAdder()).increment();
+    }
+
+    private static void waitUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            if (remaining > SPIN_THRESHOLD_NANOS) {
+                LockSupport.parkNanos(remaining - SPIN_THRESHOLD_NANOS);
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    private void awaitOutstanding() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(options.deadline + 5000);
+        while (outstanding.get() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Records the calls still unanswered after awaitOutstanding at the time they have waited so far
+     */
+    private void abandonOutstanding() {
+        long now = System.nanoTime();
+        for (Call call : inFlight) {
+            if (inFlight.remove(call) && call.measured) {
+                corrected.recordValue(TimeUnit.NANOSECONDS.toMicros(now - call.intended));
+                censored.increment();
+            }
+        }
+    }
+
+    private Map<String, Object> summary(Instant startedAt, long measuredSent) {
+        Histogram correctedHistogram = corrected.getIntervalHistogram();
+        Histogram uncorrectedHistogram = uncorrected.getIntervalHistogram();
+
+        Map<String, Object> config = new LinkedHashMap<>();
+        config.put("target", options.target);
+        config.put("mode", options.mode);
+        config.put("rate", options.rate);
+        config.put("durationSeconds", options.duration);
+        config.put("warmupSeconds", options.warmup);
+        config.put("channels", options.channels);
+        config.put("items", options.minItems + "-" + options.maxItems);
+        config.put("deadlineMillis", options.deadline);
+        config.put("replay", options.replay);
+        config.put("replayedOrders", requestSource.recordedCount());
+
+        Map<String, Object> requests = new LinkedHashMap<>();
+        requests.put("sent", sent.sum());
+        requests.put("completed", completed.sum());
+        requests.put("unanswered", outstanding.get());
+        requests.put("shed", shed.sum());
+        requests.put("streamsReopened", streamsReopened.sum());
+        requests.put("measured", correctedHistogram.getTotalCount());
+
+        Map<String, Object> latency = new LinkedHashMap<>();
+        latency.put("corrected", percentiles(correctedHistogram));
+        // Shed or unanswered samples in "corrected", recorded at a lower bound of their latency
+        latency.put("correctedCensored", censored.sum());
+        latency.put("uncorrected", percentiles(uncorrectedHistogram));
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("startedAt", startedAt.toString());
+        summary.put("config", config);
+        summary.put("requests", requests);
+        summary.put("achievedRate", options.duration > 0 ? (double) measuredSent / options.duration : 0);
+        summary.put("grpcStatus", totals(grpcStatus));
+        summary.put("responseStatus", totals(responseStatus));
+        summary.put("latencyMillis", latency);
+        return summary;
+    }
+
+    private static Map<String, Object> percentiles(Histogram histogram) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("count", histogram.getTotalCount());
+        values.put("min", millis(histogram.getMinValue()));
+        values.put("mean", Math.round(histogram.getMean()) / 1000.0);
+        values.put("p50", millis(histogram.getValueAtPercentile(50)));
+        values.put("p90", millis(histogram.getValueAtPercentile(90)));
+        values.put("p99", millis(histogram.getValueAtPercentile(99)));
+        values.put("p999", millis(histogram.getValueAtPercentile(99.9)));
+        values.put("max", millis(histogram.getMaxValue()));
+        return values;
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    private static Map<String, Long> totals(Map<String, LongAdder> counters) {
+        Map<String, Long> totals = new TreeMap<>();
+        counters.forEach((key, value) -> totals.put(key, value.sum()));
+        return totals;
+    }
+
+    private static class Call {
+        final long intended;
+        final long sentAt = System.nanoTime();
+        final boolean measured;
+
+        Call(long intended, boolean measured) {
+            this.intended = intended;
+            this.measured = measured;
+        }
+    }
+
+    /**
+     * One CreateOrders stream per channel. Pending calls are keyed by a per-send sequence number,
+     * with a FIFO of sequences per orderId to match responses, so replayed orderIds do not
+     * overwrite each other. A stream that fails completes its pending calls with the error and
+     * the next send opens a new one instead of writing into the closed call.
+     */
+    private class StreamSession {
+
+        private final ManagedChannel channel;
+        private final long closeAt;
+        private long sequence;
+        private Stream stream;
+
+        StreamSession(ManagedChannel channel) {
+            this.channel = channel;
+            this.closeAt = System.nanoTime()
+                    + TimeUnit.SECONDS.toNanos(options.warmup + options.duration)
+                    + TimeUnit.MILLISECONDS.toNanos(options.deadline);
+            this.stream = new Stream();
+        }
+
+        synchronized void send(CreateOrderRequest request, Call call) {
+            long seq = ++sequence;
+            while (!stream.send(seq, request, call)) {
+                streamsReopened.increment();
+                stream = new Stream();
+            }
+        }
+
+        synchronized void close() {
+            stream.close();
+        }
+
+        private class Stream implements StreamObserver<CreateOrderResponse> {
+
+            private final Map<Long, Call> pending = new HashMap<>();
+            private final Map<String, ArrayDeque<Long>> sequences = new HashMap<>();
+            private final StreamObserver<CreateOrderRequest> requests;
+            // Failed, or completed by the server; nothing more can be sent on it
+            private boolean closed;
+
+            Stream() {
+                long lifetime = Math.max(1, closeAt - System.nanoTime());
+                this.requests = OrderServiceGrpc.newStub(channel)
+                        .withDeadlineAfter(lifetime, TimeUnit.NANOSECONDS)
+                        .createOrders(this);
+            }
+
+            /**
+             * False if the stream is already closed; the caller opens a new one
+             */
+            synchronized boolean send(long seq, CreateOrderRequest request, Call call) {
+                if (closed) {
+                    return false;
+                }
+                pending.put(seq, call);
+                sequences.computeIfAbsent(request.getOrderId(), orderId -> new ArrayDeque<>()).add(seq);
+                requests.onNext(request);
+                return true;
+            }
+
+            synchronized void close() {
+                if (!closed) {
+                    requests.onCompleted();
+                }
+            }
+
+            @Override
+            public void onNext(CreateOrderResponse response) {
+                count(responseStatus, response.getStatus());
+                Call call = null;
+                synchronized (this) {
+                    ArrayDeque<Long> queued = sequences.get(response.getOrderId());
+                    if (queued != null) {
+                        call = pending.remove(queued.poll());
+                        if (queued.isEmpty()) {
+                            sequences.remove(response.getOrderId());
+                        }
+                    }
+                }
+                if (call != null) {
+                    complete(call, Status.Code.OK.name());
+                }
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                String status = Status.fromThrowable(t).getCode().name();
+                List<Call> calls;
+                synchronized (this) {
+                    closed = true;
+                    calls = new ArrayList<>(pending.values());
+                    pending.clear();
+                    sequences.clear();
+                }
+                calls.forEach(call -> complete(call, status));
+            }
+
+            @Override
+            public synchronized void onCompleted() {
+                closed = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.hacom.telecom.order_processing_service.loadtest;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Command line options: --name=value pairs, all optional
+ */
+class LoadTestOptions {
+
+    String target = "localhost:9090";
+    String mode = "unary";
+    double rate = 1000;
+    int duration = 60;
+    int warmup = 10;
+    int channels = 8;
+    int minItems = 1;
+    int maxItems = 10;
+    long deadline = 5000;
+    int maxOutstanding = 100_000;
+    String replay;
+    boolean keepOrderIds;
+    String output = "build/loadtest/summary.json";
+    long seed = 42;
+
+    static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + arg);
+            }
+            int separator = arg.indexOf('=');
+            if (separator > 0) {
+                values.put(arg.substring(2, separator), arg.substring(separator + 1));
+            } else {
+                values.put(arg.substring(2), "true");
+            }
+        }
+
+        LoadTestOptions options = new LoadTestOptions();
+        options.target = values.getOrDefault("target", options.target);
+        options.mode = values.getOrDefault("mode", options.mode);
+        options.rate = Double.parseDouble(values.getOrDefault("rate", String.valueOf(options.rate)));
+        options.duration = Integer.parseInt(values.getOrDefault("duration", String.valueOf(options.duration)));
+        options.warmup = Integer.parseInt(values.getOrDefault("warmup", String.valueOf(options.warmup)));
+        options.channels = Integer.parseInt(values.getOrDefault("channels", String.valueOf(options.channels)));
+        options.minItems = Integer.parseInt(values.getOrDefault("min-items", String.valueOf(options.minItems)));
+        options.maxItems = Integer.parseInt(values.getOrDefault("max-items", String.valueOf(options.maxItems)));
+        options.deadline = Long.parseLong(values.getOrDefault("deadline", String.valueOf(options.deadline)));
+        options.maxOutstanding = Integer.parseInt(values.getOrDefault("max-outstanding", String.valueOf(options.maxOutstanding)));
+        options.replay = values.get("replay");
+        options.keepOrderIds = Boolean.parseBoolean(values.getOrDefault("keep-order-ids", "false"));
+        options.output = values.getOrDefault("output", options.output);
+        options.seed = Long.parseLong(values.getOrDefault("seed", String.valueOf(options.seed)));
+
+        if (!"unary".equals(options.mode) && !"stream".equals(options.mode)) {
+            throw new IllegalArgumentException("--mode must be unary or stream");
+        }
+        if (options.rate <= 0 || options.channels <= 0 || options.minItems < 0 || options.maxItems < options.minItems) {
+            throw new IllegalArgumentException("Invalid rate, channels or item range");
+        }
+        return options;
+    }
+}
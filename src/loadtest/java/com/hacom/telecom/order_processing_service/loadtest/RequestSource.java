@@ -0,0 +1,110 @@
+package com.hacom.telecom.order_processing_service.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hacom.telecom.order_processing_service.grpc.CreateOrderRequest;
+import com.hacom.telecom.order_processing_service.grpc.OrderItem;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Produces the requests to send: randomised orders, or recorded payloads replayed in a loop.
+ *
+ * A replay file has one JSON object per line, using the proto field names in either
+ * camelCase or snake_case: {"orderId": "...", "customerId": "...", "customerPhone": "...",
+ * "items": [{"itemId": "...", "productName": "...", "quantity": 1, "price": 9.99}]}.
+ * Lines without items are skipped, so mixed logs can be replayed as they are.
+ */
+class RequestSource {
+
+    private final LoadTestOptions options;
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+    private final List<CreateOrderRequest> recorded;
+    private final SplittableRandom random;
+    private long sequence;
+
+    RequestSource(LoadTestOptions options) throws IOException {
+        this.options = options;
+        this.random = new SplittableRandom(options.seed);
+        this.recorded = options.replay != null ? load(Path.of(options.replay)) : List.of();
+        if (options.replay != null && recorded.isEmpty()) {
+            throw new IllegalArgumentException("No orders found in " + options.replay);
+        }
+    }
+
+    int recordedCount() {
+        return recorded.size();
+    }
+
+    /**
+     * Called from the single pacing thread only
+     */
+    CreateOrderRequest next() {
+        long id = sequence++;
+        if (!recorded.isEmpty()) {
+            CreateOrderRequest request = recorded.get((int) (id % recorded.size()));
+            if (options.keepOrderIds) {
+                return request;
+            }
+            return request.toBuilder().setOrderId(request.getOrderId() + "-" + runId + "-" + id).build();
+        }
+
+        CreateOrderRequest.Builder builder = CreateOrderRequest.newBuilder()
+                .setOrderId("LT-" + runId + "-" + id)
+                .setCustomerId("CUST-" + random.nextInt(10_000))
+                .setCustomerPhone("+519" + (10_000_000 + random.nextInt(90_000_000)));
+        int items = options.minItems + random.nextInt(options.maxItems - options.minItems + 1);
+        for (int i = 0; i < items; i++) {
+            int product = random.nextInt(1_000);
+            builder.addItems(OrderItem.newBuilder()
+                    .setItemId("ITEM-" + product)
+                    .setProductName("Product " + product)
+                    .setQuantity(1 + random.nextInt(5))
+                    .setPrice(Math.round(random.nextDouble(1, 500) * 100) / 100.0));
+        }
+        return builder.build();
+    }
+
+    private static List<CreateOrderRequest> load(Path file) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        List<CreateOrderRequest> requests = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                JsonNode node = mapper.readTree(line);
+                JsonNode items = node.path("items");
+                if (!items.isArray() || items.isEmpty()) {
+                    continue;
+                }
+
+                CreateOrderRequest.Builder builder = CreateOrderRequest.newBuilder()
+                        .setOrderId(text(node, "orderId", "order_id"))
+                        .setCustomerId(text(node, "customerId", "customer_id"))
+                        .setCustomerPhone(text(node, "customerPhone", "customer_phone"));
+                for (JsonNode item : items) {
+                    builder.addItems(OrderItem.newBuilder()
+                            .setItemId(text(item, "itemId", "item_id"))
+                            .setProductName(text(item, "productName", "product_name"))
+                            .setQuantity(item.path("quantity").asInt())
+                            .setPrice(item.path("price").asDouble()));
+                }
+                requests.add(builder.build());
+            }
+        }
+        return requests;
+    }
+
+    private static String text(JsonNode node, String camelCase, String snakeCase) {
+        JsonNode value = node.has(camelCase) ? node.get(camelCase) : node.path(snakeCase);
+        return value.asText("");
+    }
+}
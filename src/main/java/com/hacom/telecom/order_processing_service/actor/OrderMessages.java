@@ -1,14 +1,15 @@
 package com.hacom.telecom.order_processing_service.actor;
 
-import com.hacom.telecom.order_processing_service.model.OrderItem;
+import com.hacom.telecom.order_processing_service.model.Order;
+import com.hacom.telecom.order_processing_service.service.PackedOrder;
+import io.grpc.Context;
 import io.grpc.stub.StreamObserver;
 import com.hacom.telecom.order_processing_service.grpc.CreateOrderResponse;
 
 import java.io.Serializable;
-import java.util.List;
 
 /**
- * Mensajes que puede recibir el OrderProcessingActor
+ * Mensajes que pasan entre las etapas del OrderPipeline
  */
 public class OrderMessages {
 
@@ -16,99 +17,99 @@ public class OrderMessages {
      * Mensaje para procesar un pedido
      */
     public static class ProcessOrder implements Serializable {
-        private final String orderId;
-        private final String customerId;
-        private final String customerPhone;
-        private final List<OrderItem> items;
+        private final PackedOrder packedOrder;
         private final StreamObserver<CreateOrderResponse> responseObserver;
+        private final long enqueuedAt;
+        private final transient Context context;
 
-        public ProcessOrder(String orderId, String customerId, String customerPhone, 
-                          List<OrderItem> items, StreamObserver<CreateOrderResponse> responseObserver) {
-            this.orderId = orderId;
-            this.customerId = customerId;
-            this.customerPhone = customerPhone;
-            this.items = items;
+        public ProcessOrder(PackedOrder packedOrder, StreamObserver<CreateOrderResponse> responseObserver,
+                          long enqueuedAt, Context context) {
+            this.packedOrder = packedOrder;
             this.responseObserver = responseObserver;
+            this.enqueuedAt = enqueuedAt;
+            this.context = context;
         }
 
-        public String getOrderId() {
-            return orderId;
+        /**
+         * The order packed by OrderPacker; its fields are decoded when the insert document is written
+         */
+        public PackedOrder getPackedOrder() {
+            return packedOrder;
         }
 
-        public String getCustomerId() {
-            return customerId;
+        public String getOrderId() {
+            return packedOrder.getOrderId();
         }
 
         public String getCustomerPhone() {
-            return customerPhone;
-        }
-
-        public List<OrderItem> getItems() {
-            return items;
+            return packedOrder.getCustomerPhone();
         }
 
         public StreamObserver<CreateOrderResponse> getResponseObserver() {
             return responseObserver;
         }
-    }
-
-    /**
-     * Mensaje interno: pedido guardado exitosamente
-     */
-    public static class OrderSaved implements Serializable {
-        private final String orderId;
-        private final String status;
-        private final String customerPhone;
-        private final StreamObserver<CreateOrderResponse> responseObserver;
 
-        public OrderSaved(String orderId, String status, String customerPhone, StreamObserver<CreateOrderResponse> responseObserver) {
-            this.orderId = orderId;
-            this.status = status;
-            this.customerPhone = customerPhone;
-            this.responseObserver = responseObserver;
+        /**
+         * System.nanoTime() when the order was admitted, used for the ingest wait and lifecycle timers
+         */
+        public long getEnqueuedAt() {
+            return enqueuedAt;
         }
 
-        public String getOrderId() {
-            return orderId;
+        /**
+         * gRPC context of the call; it is cancelled when the client goes away or its deadline passes
+         */
+        public Context getContext() {
+            return context;
         }
 
-        public String getStatus() {
-            return status;
+        /**
+         * True once nobody is waiting for the response any more
+         */
+        public boolean isCancelled() {
+            return context.isCancelled();
         }
 
-        public String getCustomerPhone() {
-            return customerPhone;
-        }
-
-        public StreamObserver<CreateOrderResponse> getResponseObserver() {
-            return responseObserver;
+        public boolean isDeadlineExceeded() {
+            return context.getDeadline() != null && context.getDeadline().isExpired();
         }
     }
 
     /**
-     * Mensaje interno: error al procesar pedido
+     * Resultado de la etapa persist: la orden guardada (o ya existente) o el error
      */
-    public static class OrderError implements Serializable {
-        private final String orderId;
-        private final String errorMessage;
-        private final StreamObserver<CreateOrderResponse> responseObserver;
+    public static class OrderPersisted {
+        private final ProcessOrder processOrder;
+        private final Order order;
+        private final Throwable error;
+
+        public OrderPersisted(ProcessOrder processOrder, Order order, Throwable error) {
+            this.processOrder = processOrder;
+            this.order = order;
+            this.error = error;
+        }
 
-        public OrderError(String orderId, String errorMessage, StreamObserver<CreateOrderResponse> responseObserver) {
-            this.orderId = orderId;
-            this.errorMessage = errorMessage;
-            this.responseObserver = responseObserver;
+        public ProcessOrder getProcessOrder() {
+            return processOrder;
         }
 
         public String getOrderId() {
-            return orderId;
+            return processOrder.getOrderId();
         }
 
-        public String getErrorMessage() {
-            return errorMessage;
+        public Order getOrder() {
+            return order;
         }
 
-        public StreamObserver<CreateOrderResponse> getResponseObserver() {
-            return responseObserver;
+        public Throwable getError() {
+            return error;
+        }
+
+        /**
+         * True when createOrder returned an order that already existed
+         */
+        public boolean isDuplicate() {
+            return order != null && order.isDuplicate();
         }
     }
 }
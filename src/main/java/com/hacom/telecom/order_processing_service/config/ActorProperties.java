@@ -0,0 +1,55 @@
+package com.hacom.telecom.order_processing_service.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "actors")
+public class ActorProperties {
+
+    private String dispatcher = "order-dispatcher";
+    private int parallelismMin = 2;
+    private double parallelismFactor = 1.0;
+    private int parallelismMax = 64;
+    private int throughput = 100;
+
+    public String getDispatcher() {
+        return dispatcher;
+    }
+
+    public void setDispatcher(String dispatcher) {
+        this.dispatcher = dispatcher;
+    }
+
+    public int getParallelismMin() {
+        return parallelismMin;
+    }
+
+    public void setParallelismMin(int parallelismMin) {
+        this.parallelismMin = parallelismMin;
+    }
+
+    public double getParallelismFactor() {
+        return parallelismFactor;
+    }
+
+    public void setParallelismFactor(double parallelismFactor) {
+        this.parallelismFactor = parallelismFactor;
+    }
+
+    public int getParallelismMax() {
+        return parallelismMax;
+    }
+
+    public void setParallelismMax(int parallelismMax) {
+        this.parallelismMax = parallelismMax;
+    }
+
+    public int getThroughput() {
+        return throughput;
+    }
+
+    public void setThroughput(int throughput) {
+        this.throughput = throughput;
+    }
+}
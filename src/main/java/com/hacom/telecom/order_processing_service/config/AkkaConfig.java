@@ -10,10 +10,14 @@ import org.springframework.context.annotation.Configuration;
 public class AkkaConfig {
 
     @Bean
-    public ActorSystem actorSystem() {
+    public ActorSystem actorSystem(ActorProperties actorProperties) {
         // Akka configuration
         Config config = ConfigFactory.parseString(
             "akka {\n" +
+            // Actor logs go through SLF4J to the async Log4j2 loggers; the filter drops
+            // disabled levels before the event is published
+            "  loggers = [\"akka.event.slf4j.Slf4jLogger\"]\n" +
+            "  logging-filter = \"akka.event.slf4j.Slf4jLoggingFilter\"\n" +
             "  loglevel = \"INFO\"\n" +
             "  actor {\n" +
             "    default-dispatcher {\n" +
@@ -27,9 +31,21 @@ public class AkkaConfig {
             "      throughput = 100\n" +
             "    }\n" +
             "  }\n" +
-            "}"
+            "}\n"
         );
+        // Dedicated dispatcher for the order pipeline stages, sized from application.yml and
+        // defined under the configured actors.dispatcher path so OrderPipeline's lookup finds it
+        Config orderDispatcher = ConfigFactory.parseString(
+            "type = Dispatcher\n" +
+            "executor = \"fork-join-executor\"\n" +
+            "fork-join-executor {\n" +
+            "  parallelism-min = " + actorProperties.getParallelismMin() + "\n" +
+            "  parallelism-factor = " + actorProperties.getParallelismFactor() + "\n" +
+            "  parallelism-max = " + actorProperties.getParallelismMax() + "\n" +
+            "}\n" +
+            "throughput = " + actorProperties.getThroughput() + "\n"
+        ).atPath(actorProperties.getDispatcher());
         
-        return ActorSystem.create("OrderProcessingSystem", config);
+        return ActorSystem.create("OrderProcessingSystem", orderDispatcher.withFallback(config));
     }
 }
@@ -27,6 +27,14 @@ public class MetricsConfig {
                 .register(registry);
     }
 
+    @Bean
+    public Counter ordersRejectedCounter(MeterRegistry registry) {
+        return Counter.builder("orders.rejected.total")
+                .description("Total number of orders rejected because the in-flight limit was reached")
+                .tag("service", "order-processing")
+                .register(registry);
+    }
+
     @Bean
     public Counter smsSentCounter(MeterRegistry registry) {
         return Counter.builder("sms.sent.total")
@@ -42,4 +50,28 @@ public class MetricsConfig {
                 .tag("service", "order-processing")
                 .register(registry);
     }
+
+    @Bean
+    public Counter smsThrottledCounter(MeterRegistry registry) {
+        return Counter.builder("sms.throttled.total")
+                .description("Total number of SubmitSm rejected by the SMSC with ESME_RTHROTTLED")
+                .tag("service", "order-processing")
+                .register(registry);
+    }
+
+    @Bean
+    public Counter smsOutboxEnqueuedCounter(MeterRegistry registry) {
+        return Counter.builder("sms.outbox.enqueued.total")
+                .description("Total number of SMS notifications written to the outbox")
+                .tag("service", "order-processing")
+                .register(registry);
+    }
+
+    @Bean
+    public Counter smsOutboxDeadCounter(MeterRegistry registry) {
+        return Counter.builder("sms.outbox.dead.total")
+                .description("Total number of SMS notifications moved to dead letter after exhausting retries")
+                .tag("service", "order-processing")
+                .register(registry);
+    }
 }
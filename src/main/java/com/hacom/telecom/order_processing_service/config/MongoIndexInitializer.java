@@ -0,0 +1,84 @@
+package com.hacom.telecom.order_processing_service.config;
+
+import com.hacom.telecom.order_processing_service.model.Order;
+import com.hacom.telecom.order_processing_service.model.OrderCountBucket;
+import com.hacom.telecom.order_processing_service.model.SmsOutboxEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Creates the indexes declared on the documents at startup.
+ * Unique indexes are created before startup continues and a failure stops the application:
+ * duplicate detection relies on them (orderId has no find-before-insert), so running without
+ * them would silently store duplicates. The other indexes, and the TTL index that removes finished
+ * outbox entries after outbox.retention, are created asynchronously.
+ */
+@Component
+public class MongoIndexInitializer {
+
+    private static final Logger log = LoggerFactory.getLogger(MongoIndexInitializer.class);
+
+    private static final Duration UNIQUE_INDEX_TIMEOUT = Duration.ofMinutes(2);
+
+    private static final List<Class<?>> INDEXED_DOCUMENTS = List.of(Order.class, SmsOutboxEntry.class, OrderCountBucket.class);
+
+    @Autowired
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @Autowired
+    private OutboxProperties outboxProperties;
+
+    @PostConstruct
+    public void createIndexes() {
+        IndexResolver indexResolver = IndexResolver.create(reactiveMongoTemplate.getConverter().getMappingContext());
+
+        for (Class<?> documentType : INDEXED_DOCUMENTS) {
+            String collection = reactiveMongoTemplate.getCollectionName(documentType);
+            for (IndexDefinition index : indexResolver.resolveIndexFor(documentType)) {
+                if (index.getIndexOptions().getBoolean("unique", false)) {
+                    ensureUniqueIndex(documentType, collection, index);
+                    continue;
+                }
+                ensureIndex(documentType, collection, index);
+            }
+        }
+
+        if (outboxProperties.getRetention() > 0) {
+            // Declared here rather than on the document so the retention comes from configuration
+            Index retention = new Index().on("finishedAt", Sort.Direction.ASC)
+                    .named("finishedAt_ttl")
+                    .expire(Duration.ofMillis(outboxProperties.getRetention()));
+            ensureIndex(SmsOutboxEntry.class, reactiveMongoTemplate.getCollectionName(SmsOutboxEntry.class), retention);
+        }
+    }
+
+    private void ensureIndex(Class<?> documentType, String collection, IndexDefinition index) {
+        reactiveMongoTemplate.indexOps(documentType).ensureIndex(index)
+                .subscribe(
+                    name -> log.info("Index {} ensured on collection {}", name, collection),
+                    error -> log.error("Could not create index {} on collection {}: {}",
+                            index.getIndexKeys().toJson(), collection, error.getMessage())
+                );
+    }
+
+    private void ensureUniqueIndex(Class<?> documentType, String collection, IndexDefinition index) {
+        try {
+            String name = reactiveMongoTemplate.indexOps(documentType).ensureIndex(index).block(UNIQUE_INDEX_TIMEOUT);
+            log.info("Unique index {} ensured on collection {}", name, collection);
+        } catch (RuntimeException e) {
+            throw new IllegalStateException("Could not create unique index " + index.getIndexKeys().toJson()
+                    + " on collection " + collection + ": " + e.getMessage(), e);
+        }
+    }
+}
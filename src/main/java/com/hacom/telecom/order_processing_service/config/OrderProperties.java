@@ -0,0 +1,184 @@
+package com.hacom.telecom.order_processing_service.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "orders")
+public class OrderProperties {
+
+    private boolean writeBehindEnabled;
+    private int writeBehindBatchSize = 500;
+    private long writeBehindMaxDelay = 5;
+    private int writeBehindConcurrency = 4;
+    private int streamWindow = 64;
+    private int maxBatchSize = 500;
+    private double summarySampleRate = 0.01;
+    private long cacheMaxSize = 100_000;
+    private long cacheTtl = 30_000;
+    private long rollupReconcileInterval = 60_000;
+    private long rollupReconcileLookback = 3_600_000;
+    private int pageSize = 100;
+    private int maxPageSize = 1000;
+    private int exportBatchSize = 500;
+    private boolean idFilterEnabled = true;
+    private long idFilterMaxBytes = 64L * 1024 * 1024;
+    private double idFilterFalsePositiveRate = 0.01;
+    private long idFilterRecentSize = 100_000;
+    private long idFilterRebuildInterval = 3_600_000;
+
+    public boolean isWriteBehindEnabled() {
+        return writeBehindEnabled;
+    }
+
+    public void setWriteBehindEnabled(boolean writeBehindEnabled) {
+        this.writeBehindEnabled = writeBehindEnabled;
+    }
+
+    public int getWriteBehindBatchSize() {
+        return writeBehindBatchSize;
+    }
+
+    public void setWriteBehindBatchSize(int writeBehindBatchSize) {
+        this.writeBehindBatchSize = writeBehindBatchSize;
+    }
+
+    public long getWriteBehindMaxDelay() {
+        return writeBehindMaxDelay;
+    }
+
+    public void setWriteBehindMaxDelay(long writeBehindMaxDelay) {
+        this.writeBehindMaxDelay = writeBehindMaxDelay;
+    }
+
+    public int getWriteBehindConcurrency() {
+        return writeBehindConcurrency;
+    }
+
+    public void setWriteBehindConcurrency(int writeBehindConcurrency) {
+        this.writeBehindConcurrency = writeBehindConcurrency;
+    }
+
+    public int getStreamWindow() {
+        return streamWindow;
+    }
+
+    public void setStreamWindow(int streamWindow) {
+        this.streamWindow = streamWindow;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public double getSummarySampleRate() {
+        return summarySampleRate;
+    }
+
+    public void setSummarySampleRate(double summarySampleRate) {
+        this.summarySampleRate = summarySampleRate;
+    }
+
+    public long getCacheMaxSize() {
+        return cacheMaxSize;
+    }
+
+    public void setCacheMaxSize(long cacheMaxSize) {
+        this.cacheMaxSize = cacheMaxSize;
+    }
+
+    public long getCacheTtl() {
+        return cacheTtl;
+    }
+
+    public void setCacheTtl(long cacheTtl) {
+        this.cacheTtl = cacheTtl;
+    }
+
+    public long getRollupReconcileInterval() {
+        return rollupReconcileInterval;
+    }
+
+    public void setRollupReconcileInterval(long rollupReconcileInterval) {
+        this.rollupReconcileInterval = rollupReconcileInterval;
+    }
+
+    public long getRollupReconcileLookback() {
+        return rollupReconcileLookback;
+    }
+
+    public void setRollupReconcileLookback(long rollupReconcileLookback) {
+        this.rollupReconcileLookback = rollupReconcileLookback;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public void setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    public int getMaxPageSize() {
+        return maxPageSize;
+    }
+
+    public void setMaxPageSize(int maxPageSize) {
+        this.maxPageSize = maxPageSize;
+    }
+
+    public int getExportBatchSize() {
+        return exportBatchSize;
+    }
+
+    public void setExportBatchSize(int exportBatchSize) {
+        this.exportBatchSize = exportBatchSize;
+    }
+
+    public boolean isIdFilterEnabled() {
+        return idFilterEnabled;
+    }
+
+    public void setIdFilterEnabled(boolean idFilterEnabled) {
+        this.idFilterEnabled = idFilterEnabled;
+    }
+
+    /**
+     * Memory budget of the orderId bloom filter; past it the filter keeps its size and its false positive rate grows
+     */
+    public long getIdFilterMaxBytes() {
+        return idFilterMaxBytes;
+    }
+
+    public void setIdFilterMaxBytes(long idFilterMaxBytes) {
+        this.idFilterMaxBytes = idFilterMaxBytes;
+    }
+
+    public double getIdFilterFalsePositiveRate() {
+        return idFilterFalsePositiveRate;
+    }
+
+    public void setIdFilterFalsePositiveRate(double idFilterFalsePositiveRate) {
+        this.idFilterFalsePositiveRate = idFilterFalsePositiveRate;
+    }
+
+    public long getIdFilterRecentSize() {
+        return idFilterRecentSize;
+    }
+
+    public void setIdFilterRecentSize(long idFilterRecentSize) {
+        this.idFilterRecentSize = idFilterRecentSize;
+    }
+
+    public long getIdFilterRebuildInterval() {
+        return idFilterRebuildInterval;
+    }
+
+    public void setIdFilterRebuildInterval(long idFilterRebuildInterval) {
+        this.idFilterRebuildInterval = idFilterRebuildInterval;
+    }
+}
@@ -0,0 +1,115 @@
+package com.hacom.telecom.order_processing_service.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "pipeline")
+public class PipelineProperties {
+
+    private int maxInFlight = 10000;
+    private int ingestBuffer = 1024;
+    private int persistParallelism = 256;
+    private int respondParallelism = 4;
+    private int notifyParallelism = 64;
+    private int stageBuffer = 256;
+    private int maxInternedIds = 100_000;
+    private boolean offHeapEnabled;
+    private long offHeapSlabBytes = 64L * 1024 * 1024;
+    private int offHeapChunkBytes = 512;
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public void setMaxInFlight(int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Orders admitted and waiting for a persist slot; when full, new orders are rejected
+     */
+    public int getIngestBuffer() {
+        return ingestBuffer;
+    }
+
+    public void setIngestBuffer(int ingestBuffer) {
+        this.ingestBuffer = ingestBuffer;
+    }
+
+    public int getPersistParallelism() {
+        return persistParallelism;
+    }
+
+    public void setPersistParallelism(int persistParallelism) {
+        this.persistParallelism = persistParallelism;
+    }
+
+    public int getRespondParallelism() {
+        return respondParallelism;
+    }
+
+    public void setRespondParallelism(int respondParallelism) {
+        this.respondParallelism = respondParallelism;
+    }
+
+    public int getNotifyParallelism() {
+        return notifyParallelism;
+    }
+
+    public void setNotifyParallelism(int notifyParallelism) {
+        this.notifyParallelism = notifyParallelism;
+    }
+
+    /**
+     * Input buffer of the respond and notify stages; when full the stage before it stops pulling
+     */
+    public int getStageBuffer() {
+        return stageBuffer;
+    }
+
+    public void setStageBuffer(int stageBuffer) {
+        this.stageBuffer = stageBuffer;
+    }
+
+    /**
+     * Distinct item ids and product names the order packer stores as int refs; beyond it they are stored inline
+     */
+    public int getMaxInternedIds() {
+        return maxInternedIds;
+    }
+
+    public void setMaxInternedIds(int maxInternedIds) {
+        this.maxInternedIds = maxInternedIds;
+    }
+
+    public boolean isOffHeapEnabled() {
+        return offHeapEnabled;
+    }
+
+    public void setOffHeapEnabled(boolean offHeapEnabled) {
+        this.offHeapEnabled = offHeapEnabled;
+    }
+
+    /**
+     * Direct memory reserved for queued orders when offHeapEnabled, allocated once at startup
+     */
+    public long getOffHeapSlabBytes() {
+        return offHeapSlabBytes;
+    }
+
+    public void setOffHeapSlabBytes(long offHeapSlabBytes) {
+        this.offHeapSlabBytes = offHeapSlabBytes;
+    }
+
+    /**
+     * Bytes per queued order in the slab; larger orders are packed on the heap
+     */
+    public int getOffHeapChunkBytes() {
+        return offHeapChunkBytes;
+    }
+
+    public void setOffHeapChunkBytes(int offHeapChunkBytes) {
+        this.offHeapChunkBytes = offHeapChunkBytes;
+    }
+}
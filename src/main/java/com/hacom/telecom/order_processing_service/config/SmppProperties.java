@@ -3,12 +3,17 @@ package com.hacom.telecom.order_processing_service.config;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Configuration
 @ConfigurationProperties(prefix = "smpp")
 public class SmppProperties {
 
     private String host;
     private int port;
+    private List<String> hosts = new ArrayList<>();
+    private int sessionsPerHost = 1;
     private String systemId;
     private String password;
     private String systemType;
@@ -22,6 +27,21 @@ public class SmppProperties {
     private int windowSize;
     private long connectTimeout;
     private long bindTimeout;
+    private long submitTimeout = 10000;
+    private long deliveryTimeout = 45000;
+    private int submitThreads = 2;
+    private String threadMode = "platform";
+    private long enquireLinkInterval = 30000;
+    private long enquireLinkTimeout = 10000;
+    private long rebindInitialBackoff = 1000;
+    private long rebindMaxBackoff = 60000;
+    private double globalTps = 0;
+    private double sessionTps = 0;
+    private int burstSize = 0;
+    private int queueCapacity = 10000;
+    private int maxThrottleRetries = 5;
+    private long throttleRecoveryMillis = 10000;
+    private long dispatchInterval = 5;
     private boolean enabled;
 
     public String getHost() {
@@ -40,6 +60,32 @@ public class SmppProperties {
         this.port = port;
     }
 
+    /**
+     * SMSC endpoints as "host:port"; falls back to host/port when no list is configured
+     */
+    public List<String> resolveHosts() {
+        if (hosts == null || hosts.isEmpty()) {
+            return List.of(host + ":" + port);
+        }
+        return hosts;
+    }
+
+    public List<String> getHosts() {
+        return hosts;
+    }
+
+    public void setHosts(List<String> hosts) {
+        this.hosts = hosts;
+    }
+
+    public int getSessionsPerHost() {
+        return sessionsPerHost;
+    }
+
+    public void setSessionsPerHost(int sessionsPerHost) {
+        this.sessionsPerHost = sessionsPerHost;
+    }
+
     public String getSystemId() {
         return systemId;
     }
@@ -144,6 +190,130 @@ public class SmppProperties {
         this.bindTimeout = bindTimeout;
     }
 
+    public long getSubmitTimeout() {
+        return submitTimeout;
+    }
+
+    public void setSubmitTimeout(long submitTimeout) {
+        this.submitTimeout = submitTimeout;
+    }
+
+    public long getDeliveryTimeout() {
+        return deliveryTimeout;
+    }
+
+    public void setDeliveryTimeout(long deliveryTimeout) {
+        this.deliveryTimeout = deliveryTimeout;
+    }
+
+    public int getSubmitThreads() {
+        return submitThreads;
+    }
+
+    public void setSubmitThreads(int submitThreads) {
+        this.submitThreads = submitThreads;
+    }
+
+    /**
+     * Threads for blocking SMPP calls: "platform" (bounded pools, submitThreads for submits)
+     * or "virtual" (one virtual thread per call, Java 21 only)
+     */
+    public String getThreadMode() {
+        return threadMode;
+    }
+
+    public void setThreadMode(String threadMode) {
+        this.threadMode = threadMode;
+    }
+
+    public long getEnquireLinkInterval() {
+        return enquireLinkInterval;
+    }
+
+    public void setEnquireLinkInterval(long enquireLinkInterval) {
+        this.enquireLinkInterval = enquireLinkInterval;
+    }
+
+    public long getEnquireLinkTimeout() {
+        return enquireLinkTimeout;
+    }
+
+    public void setEnquireLinkTimeout(long enquireLinkTimeout) {
+        this.enquireLinkTimeout = enquireLinkTimeout;
+    }
+
+    public long getRebindInitialBackoff() {
+        return rebindInitialBackoff;
+    }
+
+    public void setRebindInitialBackoff(long rebindInitialBackoff) {
+        this.rebindInitialBackoff = rebindInitialBackoff;
+    }
+
+    public long getRebindMaxBackoff() {
+        return rebindMaxBackoff;
+    }
+
+    public void setRebindMaxBackoff(long rebindMaxBackoff) {
+        this.rebindMaxBackoff = rebindMaxBackoff;
+    }
+
+    public double getGlobalTps() {
+        return globalTps;
+    }
+
+    public void setGlobalTps(double globalTps) {
+        this.globalTps = globalTps;
+    }
+
+    public double getSessionTps() {
+        return sessionTps;
+    }
+
+    public void setSessionTps(double sessionTps) {
+        this.sessionTps = sessionTps;
+    }
+
+    public int getBurstSize() {
+        return burstSize;
+    }
+
+    public void setBurstSize(int burstSize) {
+        this.burstSize = burstSize;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public int getMaxThrottleRetries() {
+        return maxThrottleRetries;
+    }
+
+    public void setMaxThrottleRetries(int maxThrottleRetries) {
+        this.maxThrottleRetries = maxThrottleRetries;
+    }
+
+    public long getThrottleRecoveryMillis() {
+        return throttleRecoveryMillis;
+    }
+
+    public void setThrottleRecoveryMillis(long throttleRecoveryMillis) {
+        this.throttleRecoveryMillis = throttleRecoveryMillis;
+    }
+
+    public long getDispatchInterval() {
+        return dispatchInterval;
+    }
+
+    public void setDispatchInterval(long dispatchInterval) {
+        this.dispatchInterval = dispatchInterval;
+    }
+
     public boolean isEnabled() {
         return enabled;
     }
@@ -0,0 +1,68 @@
+package com.hacom.telecom.order_processing_service.controller;
+
+import com.hacom.telecom.order_processing_service.config.OrderProperties;
+import com.hacom.telecom.order_processing_service.service.OrderService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/v1/customers")
+public class CustomerController {
+
+    private static final Logger log = LoggerFactory.getLogger(CustomerController.class);
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderProperties orderProperties;
+
+    /**
+     * Order history of a customer, newest first, without items. Pass nextCursor back as cursor for older orders.
+     */
+    @GetMapping("/{customerId}/orders")
+    public Mono<ResponseEntity<Map<String, Object>>> getCustomerOrders(
+            @PathVariable String customerId,
+            @RequestParam(required = false) Integer days,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor) {
+
+        log.info("GET /api/v1/customers/{}/orders - Querying order history (days={}, limit={})", customerId, days, limit);
+
+        if (days != null && days <= 0) {
+            return Mono.just(ResponseEntity.badRequest()
+                    .body(Map.of(
+                        "error", "Invalid request",
+                        "message", "days must be greater than 0"
+                    )));
+        }
+
+        int pageSize = Math.min(limit == null ? orderProperties.getPageSize() : Math.max(limit, 1),
+                orderProperties.getMaxPageSize());
+        OffsetDateTime since = days == null ? null : OffsetDateTime.now(ZoneOffset.UTC).minusDays(days);
+
+        return Mono.defer(() -> orderService.findCustomerOrders(customerId, since, cursor, pageSize))
+                .map(page -> {
+                    Map<String, Object> response = new LinkedHashMap<>();
+                    response.put("customerId", customerId);
+                    response.put("orders", page.getOrders());
+                    response.put("count", page.getOrders().size());
+                    response.put("nextCursor", page.getNextCursor());
+                    return ResponseEntity.ok(response);
+                })
+                .onErrorResume(IllegalArgumentException.class, e -> Mono.just(ResponseEntity.badRequest()
+                        .body(Map.of(
+                            "error", "Invalid request",
+                            "message", e.getMessage()
+                        ))));
+    }
+}
@@ -1,17 +1,22 @@
 package com.hacom.telecom.order_processing_service.controller;
 
+import com.hacom.telecom.order_processing_service.config.OrderProperties;
 import com.hacom.telecom.order_processing_service.model.Order;
+import com.hacom.telecom.order_processing_service.model.OrderFilter;
 import com.hacom.telecom.order_processing_service.service.OrderService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.OffsetDateTime;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 @RestController
@@ -23,6 +28,60 @@ public class OrderController {
     @Autowired
     private OrderService orderService;
 
+    @Autowired
+    private OrderProperties orderProperties;
+
+    /**
+     * Keyset-paginated listing sorted by (ts, _id); pass nextCursor back as cursor for the next page
+     */
+    @GetMapping
+    public Mono<ResponseEntity<Map<String, Object>>> listOrders(
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String customerId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime to,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor) {
+
+        log.info("GET /api/v1/orders - Listing orders (status={}, customerId={}, from={}, to={}, limit={})",
+                status, customerId, from, to, limit);
+
+        int pageSize = Math.min(limit == null ? orderProperties.getPageSize() : Math.max(limit, 1),
+                orderProperties.getMaxPageSize());
+        OrderFilter filter = new OrderFilter(status, customerId, from, to);
+
+        return Mono.defer(() -> orderService.listOrders(filter, cursor, pageSize))
+                .map(page -> {
+                    Map<String, Object> response = new LinkedHashMap<>();
+                    response.put("orders", page.getOrders());
+                    response.put("count", page.getOrders().size());
+                    response.put("nextCursor", page.getNextCursor());
+                    return ResponseEntity.ok(response);
+                })
+                .onErrorResume(IllegalArgumentException.class, e -> Mono.just(ResponseEntity.badRequest()
+                        .body(Map.of(
+                            "error", "Invalid request",
+                            "message", e.getMessage()
+                        ))));
+    }
+
+    /**
+     * Streams all matching orders as NDJSON (or SSE with Accept: text/event-stream), with backpressure
+     * from the client connection down to the Mongo cursor
+     */
+    @GetMapping(value = "/export", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public Flux<Order> exportOrders(
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String customerId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime to) {
+
+        log.info("GET /api/v1/orders/export - Exporting orders (status={}, customerId={}, from={}, to={})",
+                status, customerId, from, to);
+
+        return orderService.exportOrders(new OrderFilter(status, customerId, from, to));
+    }
+
     @GetMapping("/{orderId}/status")
     public Mono<ResponseEntity<Map<String, Object>>> getOrderStatus(@PathVariable String orderId) {
         log.info("GET /api/v1/orders/{}/status - Querying order status", orderId);
@@ -0,0 +1,174 @@
+package com.hacom.telecom.order_processing_service.grpc;
+
+import com.hacom.telecom.order_processing_service.service.OrderPipeline;
+import io.grpc.Context;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Server side of the CreateOrders stream.
+ * Inbound flow control is manual: at most window orders are requested from the
+ * client and a new one is only requested after a response has been written and
+ * the transport is ready, so a slow order pipeline pushes back on the client.
+ * Orders refused by the in-flight limit are parked and retried, which keeps
+ * demand suspended until the pipeline has capacity again.
+ */
+class CreateOrdersStream implements StreamObserver<CreateOrderRequest> {
+
+    private static final Logger log = LoggerFactory.getLogger(CreateOrdersStream.class);
+
+    private static final Executor RETRY_EXECUTOR = CompletableFuture.delayedExecutor(50, TimeUnit.MILLISECONDS);
+
+    private final ServerCallStreamObserver<CreateOrderResponse> responseObserver;
+    private final OrderPipeline orderPipeline;
+    // Captured on the call thread so orders retried from RETRY_EXECUTOR still see the call's cancellation
+    private final Context context = Context.current();
+
+    // Guarded by this
+    private final Deque<CreateOrderRequest> rejected = new ArrayDeque<>();
+    private int inFlight;
+    private int pendingDemand;
+    private boolean halfClosed;
+    private boolean completed;
+
+    CreateOrdersStream(ServerCallStreamObserver<CreateOrderResponse> responseObserver,
+                       OrderPipeline orderPipeline, int window) {
+        this.responseObserver = responseObserver;
+        this.orderPipeline = orderPipeline;
+
+        responseObserver.disableAutoRequest();
+        responseObserver.setOnReadyHandler(this::onReady);
+        responseObserver.setOnCancelHandler(() -> log.warn("CreateOrders stream cancelled by client"));
+        responseObserver.request(window);
+    }
+
+    @Override
+    public void onNext(CreateOrderRequest request) {
+        synchronized (this) {
+            inFlight++;
+            if (!rejected.isEmpty()) {
+                // Keep the order of the stream behind orders already waiting for capacity
+                rejected.addLast(request);
+                return;
+            }
+        }
+
+        if (!submit(request)) {
+            synchronized (this) {
+                rejected.addLast(request);
+                if (rejected.size() == 1) {
+                    RETRY_EXECUTOR.execute(this::retryRejected);
+                }
+            }
+        }
+    }
+
+    private boolean submit(CreateOrderRequest request) {
+        try {
+            return orderPipeline.processOrder(request, new OrderResponseObserver(request.getOrderId()), context);
+        } catch (Exception e) {
+            onOrderResponse(errorResponse(request.getOrderId(), "Exception: " + e.getMessage()));
+            return true;
+        }
+    }
+
+    private synchronized void retryRejected() {
+        while (!rejected.isEmpty() && !completed && !context.isCancelled()) {
+            if (!submit(rejected.peekFirst())) {
+                RETRY_EXECUTOR.execute(this::retryRejected);
+                return;
+            }
+            rejected.pollFirst();
+        }
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        log.warn("CreateOrders stream failed: {}", t.getMessage());
+        synchronized (this) {
+            completed = true;
+        }
+    }
+
+    @Override
+    public void onCompleted() {
+        synchronized (this) {
+            halfClosed = true;
+            maybeComplete();
+        }
+    }
+
+    private synchronized void onOrderResponse(CreateOrderResponse response) {
+        inFlight--;
+        if (completed || responseObserver.isCancelled()) {
+            return;
+        }
+
+        responseObserver.onNext(response);
+        if (!halfClosed) {
+            if (responseObserver.isReady()) {
+                responseObserver.request(1);
+            } else {
+                pendingDemand++;
+            }
+        }
+        maybeComplete();
+    }
+
+    private synchronized void onReady() {
+        if (pendingDemand > 0 && !halfClosed && !completed) {
+            responseObserver.request(pendingDemand);
+            pendingDemand = 0;
+        }
+    }
+
+    private void maybeComplete() {
+        if (halfClosed && inFlight == 0 && !completed) {
+            completed = true;
+            responseObserver.onCompleted();
+        }
+    }
+
+    private static CreateOrderResponse errorResponse(String orderId, String message) {
+        return CreateOrderResponse.newBuilder()
+                .setOrderId(orderId)
+                .setStatus("ERROR")
+                .setMessage(message)
+                .build();
+    }
+
+    /**
+     * Per-order observer handed to the pipeline; forwards the single response to the shared stream
+     */
+    private class OrderResponseObserver implements StreamObserver<CreateOrderResponse> {
+
+        private final String orderId;
+
+        OrderResponseObserver(String orderId) {
+            this.orderId = orderId;
+        }
+
+        @Override
+        public void onNext(CreateOrderResponse response) {
+            onOrderResponse(response);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            onOrderResponse(errorResponse(orderId, "Failed to process order: " + t.getMessage()));
+        }
+
+        @Override
+        public void onCompleted() {
+            // The stream is completed once every order has answered and the client half-closed
+        }
+    }
+}
@@ -1,39 +1,37 @@
 package com.hacom.telecom.order_processing_service.grpc;
 
-import com.hacom.telecom.order_processing_service.model.OrderItem;
-import com.hacom.telecom.order_processing_service.service.ActorService;
+import com.hacom.telecom.order_processing_service.config.OrderProperties;
+import com.hacom.telecom.order_processing_service.service.OrderBatchService;
+import com.hacom.telecom.order_processing_service.service.OrderPipeline;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
 import io.grpc.stub.StreamObserver;
 import net.devh.boot.grpc.server.service.GrpcService;
 import org.springframework.beans.factory.annotation.Autowired;
 
-import java.util.List;
-import java.util.stream.Collectors;
-
 @GrpcService
 public class OrderGrpcService extends OrderServiceGrpc.OrderServiceImplBase {
 
     @Autowired
-    private ActorService actorService;
+    private OrderPipeline orderPipeline;
+
+    @Autowired
+    private OrderBatchService orderBatchService;
+
+    @Autowired
+    private OrderProperties orderProperties;
 
     @Override
     public void createOrder(CreateOrderRequest request, StreamObserver<CreateOrderResponse> responseObserver) {
         try {
-            List<OrderItem> items = request.getItemsList().stream()
-                    .map(grpcItem -> new OrderItem(
-                            grpcItem.getItemId(),
-                            grpcItem.getProductName(),
-                            grpcItem.getQuantity(),
-                            grpcItem.getPrice()
-                    ))
-                    .collect(Collectors.toList());
-
-            actorService.processOrder(
-                    request.getOrderId(),
-                    request.getCustomerId(),
-                    request.getCustomerPhone(),
-                    items,
-                    responseObserver
-            );
+            boolean admitted = orderPipeline.processOrder(request, responseObserver);
+
+            if (!admitted) {
+                // Fail fast instead of queueing on the heap; clients should back off and retry
+                responseObserver.onError(Status.RESOURCE_EXHAUSTED
+                        .withDescription("Order processing is at capacity, retry later")
+                        .asRuntimeException());
+            }
             
         } catch (Exception e) {
             CreateOrderResponse response = CreateOrderResponse.newBuilder()
@@ -46,4 +44,59 @@ public class OrderGrpcService extends OrderServiceGrpc.OrderServiceImplBase {
             responseObserver.onCompleted();
         }
     }
+
+    @Override
+    public void createOrderBatch(CreateOrderBatchRequest request, StreamObserver<CreateOrderBatchResponse> responseObserver) {
+        if (request.getOrdersCount() > orderProperties.getMaxBatchSize()) {
+            responseObserver.onError(Status.INVALID_ARGUMENT
+                    .withDescription("A batch may hold at most " + orderProperties.getMaxBatchSize() + " orders")
+                    .asRuntimeException());
+            return;
+        }
+
+        ServerCallStreamObserver<CreateOrderBatchResponse> serverObserver =
+                (ServerCallStreamObserver<CreateOrderBatchResponse>) responseObserver;
+        if (serverObserver.isCancelled()) {
+            // Client gone or deadline passed before anything was written: nothing to undo
+            return;
+        }
+
+        int orders = request.getOrdersCount();
+        if (!orderPipeline.reserve(orders)) {
+            responseObserver.onError(Status.RESOURCE_EXHAUSTED
+                    .withDescription("Order processing is at capacity, retry later")
+                    .asRuntimeException());
+            return;
+        }
+
+        // Not disposed on cancel: once issued, the insert runs to completion with its outbox
+        // enqueue and counters, and only the response is skipped
+        orderBatchService.createBatch(request.getOrdersList())
+                .doFinally(signal -> orderPipeline.release(orders))
+                .subscribe(
+                    results -> {
+                        if (serverObserver.isCancelled()) {
+                            return;
+                        }
+                        responseObserver.onNext(CreateOrderBatchResponse.newBuilder().addAllResults(results).build());
+                        responseObserver.onCompleted();
+                    },
+                    error -> {
+                        if (!serverObserver.isCancelled()) {
+                            responseObserver.onError(Status.INTERNAL
+                                    .withDescription(error.getMessage())
+                                    .asRuntimeException());
+                        }
+                    }
+                );
+    }
+
+    @Override
+    public StreamObserver<CreateOrderRequest> createOrders(StreamObserver<CreateOrderResponse> responseObserver) {
+        return new CreateOrdersStream(
+                (ServerCallStreamObserver<CreateOrderResponse>) responseObserver,
+                orderPipeline,
+                orderProperties.getStreamWindow()
+        );
+    }
 }
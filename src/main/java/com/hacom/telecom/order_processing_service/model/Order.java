@@ -1,22 +1,40 @@
 package com.hacom.telecom.order_processing_service.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.OffsetDateTime;
 import java.util.List;
 
 @Document(collection = "orders")
+// Keyset paging sorts on (ts, _id); the first index also serves the range count edge queries
+@CompoundIndexes({
+    @CompoundIndex(name = "ts_id", def = "{'ts': 1, '_id': 1}"),
+    @CompoundIndex(name = "status_ts_id", def = "{'status': 1, 'ts': 1, '_id': 1}"),
+    // Newest-first customer history; holds every field of OrderSummary so that query is index-covered
+    @CompoundIndex(name = "customerId_ts_id_summary",
+            def = "{'customerId': 1, 'ts': -1, '_id': -1, 'orderId': 1, 'status': 1}")
+})
 public class Order {
     
     @Id
     private String id;
+    @Indexed(unique = true)
     private String orderId;
     private String customerId;
     private String customerPhoneNumber;
     private List<OrderItem> items;
     private String status;
     private OffsetDateTime ts;
+    // Not persisted: set when createOrder returned an order that already existed
+    @Transient
+    @JsonIgnore
+    private boolean duplicate;
 
     public Order() {
     }
@@ -30,6 +48,15 @@ public class Order {
         this.ts = OffsetDateTime.now();
     }
 
+    @JsonIgnore
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
     public String getOrderId() {
         return orderId;
     }
@@ -78,4 +105,12 @@ public class Order {
     public void setTs(OffsetDateTime ts) {
         this.ts = ts;
     }
+
+    public boolean isDuplicate() {
+        return duplicate;
+    }
+
+    public void setDuplicate(boolean duplicate) {
+        this.duplicate = duplicate;
+    }
 }
@@ -0,0 +1,75 @@
+package com.hacom.telecom.order_processing_service.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * Number of orders whose ts falls in [bucketStart, bucketStart + granularity), in UTC, as last
+ * recomputed by OrderCountRollup at reconciledAt.
+ */
+@Document(collection = "order_counts")
+@CompoundIndex(name = "granularity_bucketStart", def = "{'granularity': 1, 'bucketStart': 1}")
+public class OrderCountBucket {
+
+    public static final String MINUTE = "MINUTE";
+    public static final String HOUR = "HOUR";
+    public static final String DAY = "DAY";
+
+    // granularity + ":" + bucketStart epoch millis, so increments are plain upserts
+    @Id
+    private String id;
+    private String granularity;
+    private Instant bucketStart;
+    private long count;
+    private Instant reconciledAt;
+
+    public OrderCountBucket() {
+    }
+
+    public static String id(String granularity, long bucketStartMillis) {
+        return granularity + ":" + bucketStartMillis;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getGranularity() {
+        return granularity;
+    }
+
+    public void setGranularity(String granularity) {
+        this.granularity = granularity;
+    }
+
+    public Instant getBucketStart() {
+        return bucketStart;
+    }
+
+    public void setBucketStart(Instant bucketStart) {
+        this.bucketStart = bucketStart;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public Instant getReconciledAt() {
+        return reconciledAt;
+    }
+
+    public void setReconciledAt(Instant reconciledAt) {
+        this.reconciledAt = reconciledAt;
+    }
+}
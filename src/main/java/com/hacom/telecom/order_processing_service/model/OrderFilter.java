@@ -0,0 +1,38 @@
+package com.hacom.telecom.order_processing_service.model;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Optional filters for listing and exporting orders; null fields are not applied.
+ * The time range is from <= ts < to.
+ */
+public class OrderFilter {
+
+    private final String status;
+    private final String customerId;
+    private final OffsetDateTime from;
+    private final OffsetDateTime to;
+
+    public OrderFilter(String status, String customerId, OffsetDateTime from, OffsetDateTime to) {
+        this.status = status;
+        this.customerId = customerId;
+        this.from = from;
+        this.to = to;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public String getCustomerId() {
+        return customerId;
+    }
+
+    public OffsetDateTime getFrom() {
+        return from;
+    }
+
+    public OffsetDateTime getTo() {
+        return to;
+    }
+}
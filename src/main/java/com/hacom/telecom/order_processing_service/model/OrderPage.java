@@ -0,0 +1,25 @@
+package com.hacom.telecom.order_processing_service.model;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated order listing. nextCursor is null on the last page.
+ */
+public class OrderPage<T> {
+
+    private final List<T> orders;
+    private final String nextCursor;
+
+    public OrderPage(List<T> orders, String nextCursor) {
+        this.orders = orders;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getOrders() {
+        return orders;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -0,0 +1,66 @@
+package com.hacom.telecom.order_processing_service.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.springframework.data.annotation.Id;
+
+import java.time.OffsetDateTime;
+
+/**
+ * List view of an order read from the orders collection without items or phone number.
+ * Every field is part of the customerId_ts_id_summary index.
+ */
+public class OrderSummary {
+
+    public static final String[] FIELDS = {"_id", "orderId", "customerId", "status", "ts"};
+
+    @Id
+    private String id;
+    private String orderId;
+    private String customerId;
+    private String status;
+    private OffsetDateTime ts;
+
+    public OrderSummary() {
+    }
+
+    @JsonIgnore
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(String orderId) {
+        this.orderId = orderId;
+    }
+
+    public String getCustomerId() {
+        return customerId;
+    }
+
+    public void setCustomerId(String customerId) {
+        this.customerId = customerId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public OffsetDateTime getTs() {
+        return ts;
+    }
+
+    public void setTs(OffsetDateTime ts) {
+        this.ts = ts;
+    }
+}
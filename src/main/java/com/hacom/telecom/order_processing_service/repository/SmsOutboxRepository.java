@@ -0,0 +1,12 @@
+package com.hacom.telecom.order_processing_service.repository;
+
+import com.hacom.telecom.order_processing_service.model.SmsOutboxEntry;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+@Repository
+public interface SmsOutboxRepository extends ReactiveMongoRepository<SmsOutboxEntry, String> {
+
+    Mono<Long> countByStatus(String status);
+}
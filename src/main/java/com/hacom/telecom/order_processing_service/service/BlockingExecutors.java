@@ -0,0 +1,59 @@
+package com.hacom.telecom.order_processing_service.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors for blocking SMPP calls (bind, waits for a send window slot), so they never run on
+ * Akka, Reactor or Netty threads. Mode "platform" is a fixed pool of daemon threads; mode "virtual"
+ * starts one virtual thread per task and needs a Java 21 runtime (./gradlew -PjavaVersion=21).
+ * The virtual-thread API is looked up reflectively so the Java 17 build still compiles; on an older
+ * runtime the platform pool is used instead.
+ */
+public final class BlockingExecutors {
+
+    private static final Logger log = LoggerFactory.getLogger(BlockingExecutors.class);
+
+    public static final String PLATFORM = "platform";
+    public static final String VIRTUAL = "virtual";
+
+    private BlockingExecutors() {
+    }
+
+    public static ExecutorService create(String name, String threadMode, int platformThreads) {
+        if (VIRTUAL.equalsIgnoreCase(threadMode)) {
+            try {
+                return virtualThreadPerTask(name);
+            } catch (ReflectiveOperationException e) {
+                log.warn("Virtual threads need Java 21 (running {}); '{}' uses {} platform threads",
+                        Runtime.version(), name, platformThreads);
+            }
+        } else if (!PLATFORM.equalsIgnoreCase(threadMode)) {
+            throw new IllegalArgumentException("Unknown thread mode '" + threadMode + "', expected platform or virtual");
+        }
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        return Executors.newFixedThreadPool(platformThreads, runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 1).factory())
+     */
+    private static ExecutorService virtualThreadPerTask(String name) throws ReflectiveOperationException {
+        Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+        Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+        builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, name + "-", 1L);
+        ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                .invoke(null, factory);
+    }
+}
@@ -0,0 +1,139 @@
+package com.hacom.telecom.order_processing_service.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free bloom filter over strings: no false negatives, false positives at roughly the
+ * configured rate while at most getCapacity() keys have been added.
+ *
+ * Keys are hashed char by char (64-bit FNV-1a, then two finalizer mixes for double hashing),
+ * so add and mightContain do not allocate.
+ */
+public class BloomFilter {
+
+    private static final double LN2 = Math.log(2);
+
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+    private final long capacity;
+    private final AtomicLong count = new AtomicLong();
+
+    BloomFilter(long bitCount, int hashCount, long capacity) {
+        long wordCount = (bitCount + 63) / 64;
+        if (wordCount > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Bloom filter too large: " + bitCount + " bits");
+        }
+        this.words = new AtomicLongArray((int) wordCount);
+        this.bitCount = wordCount * 64;
+        this.hashCount = hashCount;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Sized for expectedKeys at falsePositiveRate, but never above maxBytes; when the budget
+     * caps the size, the capacity shrinks to what the budget holds at that rate.
+     */
+    public static BloomFilter create(long expectedKeys, double falsePositiveRate, long maxBytes) {
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("False positive rate must be in (0, 1): " + falsePositiveRate);
+        }
+        long keys = Math.max(1, expectedKeys);
+        long maxBits = Math.max(64, maxBytes * 8);
+        double bitsPerKey = -Math.log(falsePositiveRate) / (LN2 * LN2);
+        long bits = (long) Math.ceil(keys * bitsPerKey);
+        if (bits > maxBits) {
+            bits = maxBits;
+            keys = Math.max(1, (long) (bits / bitsPerKey));
+        }
+        int hashes = Math.max(1, (int) Math.round(bitsPerKey * LN2));
+        return new BloomFilter(bits, hashes, keys);
+    }
+
+    public void add(String key) {
+        long hash = fnv1a(key);
+        long h1 = mix(hash);
+        long h2 = mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+        boolean changed = false;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            changed |= setBit(bit);
+        }
+        if (changed) {
+            count.incrementAndGet();
+        }
+    }
+
+    public boolean mightContain(String key) {
+        long hash = fnv1a(key);
+        long h1 = mix(hash);
+        long h2 = mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Keys added so far (keys that only set bits already set are not counted)
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Keys the filter holds at its target false positive rate
+     */
+    public long getCapacity() {
+        return capacity;
+    }
+
+    public long getSizeInBytes() {
+        return bitCount / 8;
+    }
+
+    /**
+     * (1 - e^(-k n / m))^k for the current count
+     */
+    public double getExpectedFalsePositiveRate() {
+        return Math.pow(1 - Math.exp(-(double) hashCount * count.get() / bitCount), hashCount);
+    }
+
+    private boolean setBit(long bit) {
+        int index = (int) (bit >>> 6);
+        long mask = 1L << bit;
+        long word;
+        do {
+            word = words.get(index);
+            if ((word & mask) != 0) {
+                return false;
+            }
+        } while (!words.compareAndSet(index, word, word | mask));
+        return true;
+    }
+
+    private static long fnv1a(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * MurmurHash3 fmix64
+     */
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,91 @@
+package com.hacom.telecom.order_processing_service.service;
+
+import com.hacom.telecom.order_processing_service.grpc.CreateOrderRequest;
+import com.hacom.telecom.order_processing_service.grpc.CreateOrderResponse;
+import com.hacom.telecom.order_processing_service.model.SmsOutboxEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * CreateOrderBatch: the whole batch goes through one OrderService.createOrders call and one
+ * outbox bulk insert, without a ProcessOrder message per order.
+ */
+@Service
+public class OrderBatchService {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderBatchService.class);
+
+    private static final int ENQUEUE_RETRIES = 3;
+    private static final Duration ENQUEUE_BACKOFF = Duration.ofMillis(100);
+    private static final Duration ENQUEUE_MAX_BACKOFF = Duration.ofSeconds(1);
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private SmsOutboxService smsOutboxService;
+
+    /**
+     * Emits one response per request, in request order, once the orders are stored and their SMS
+     * notifications are in the outbox. Never fails: if the batch as a whole could not be stored,
+     * or the outbox insert still fails after a few retries, every order is answered with ERROR so
+     * the client retries the batch; stored orders then come back as duplicates and are queued again.
+     */
+    public Mono<List<CreateOrderResponse>> createBatch(List<CreateOrderRequest> requests) {
+        log.debug("Processing batch of {} orders", requests.size());
+
+        return orderService.createOrders(requests)
+                .flatMap(results -> {
+                    List<CreateOrderResponse> responses = new ArrayList<>(results.size());
+                    List<SmsOutboxEntry> notifications = new ArrayList<>(results.size());
+                    for (int i = 0; i < results.size(); i++) {
+                        CreateOrderRequest request = requests.get(i);
+                        OrderBatchWriter.InsertResult result = results.get(i);
+                        if (result.getError() != null) {
+                            responses.add(errorResponse(request.getOrderId(), result.getError().getMessage()));
+                            continue;
+                        }
+                        // As on the single-order path, duplicates are queued too; the outbox ignores repeats
+                        notifications.add(new SmsOutboxEntry(request.getOrderId(), request.getCustomerPhone()));
+                        responses.add(CreateOrderResponse.newBuilder()
+                                .setOrderId(request.getOrderId())
+                                .setStatus("PROCESSING")
+                                .setMessage(result.getOrder().isDuplicate()
+                                        ? "Order already received and is being processed"
+                                        : "Order received and is being processed")
+                                .build());
+                    }
+
+                    // Only the outbox insert happens here; the SMS themselves are sent by the outbox dispatcher
+                    return smsOutboxService.enqueueOrderProcessedNotifications(notifications)
+                            .retryWhen(Retry.backoff(ENQUEUE_RETRIES, ENQUEUE_BACKOFF).maxBackoff(ENQUEUE_MAX_BACKOFF))
+                            .doOnNext(count -> log.debug("{} SMS notifications queued for a batch of {} orders",
+                                    count, requests.size()))
+                            .onErrorMap(Exceptions::isRetryExhausted, Throwable::getCause)
+                            .thenReturn(responses);
+                })
+                .onErrorResume(error -> {
+                    log.error("Error processing batch of {} orders: {}", requests.size(), error.getMessage());
+                    List<CreateOrderResponse> responses = new ArrayList<>(requests.size());
+                    requests.forEach(request -> responses.add(errorResponse(request.getOrderId(), error.getMessage())));
+                    return Mono.just(responses);
+                });
+    }
+
+    private static CreateOrderResponse errorResponse(String orderId, String errorMessage) {
+        return CreateOrderResponse.newBuilder()
+                .setOrderId(orderId)
+                .setStatus("ERROR")
+                .setMessage("Failed to process order: " + errorMessage)
+                .build();
+    }
+}
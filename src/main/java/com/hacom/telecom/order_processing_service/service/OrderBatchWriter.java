@@ -0,0 +1,217 @@
+package com.hacom.telecom.order_processing_service.service;
+
+import com.hacom.telecom.order_processing_service.config.OrderProperties;
+import com.hacom.telecom.order_processing_service.model.Order;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.model.InsertManyOptions;
+import org.bson.RawBsonDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Optional write-behind stage for new orders: buffers inserts for up to
+ * orders.writeBehindBatchSize documents or orders.writeBehindMaxDelay ms and
+ * flushes them with one unordered bulk write. Each caller still gets its own
+ * result; duplicate-key errors are reported as DuplicateKeyException for the
+ * order that caused them.
+ */
+@Component
+public class OrderBatchWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderBatchWriter.class);
+
+    private static final int DUPLICATE_KEY_ERROR = 11000;
+
+    private static final InsertManyOptions UNORDERED = new InsertManyOptions().ordered(false);
+
+    @Autowired
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @Autowired
+    private OrderProperties orderProperties;
+
+    private volatile FluxSink<PendingInsert> emitter;
+    private Disposable subscription;
+
+    @PostConstruct
+    public void init() {
+        if (!orderProperties.isWriteBehindEnabled()) {
+            return;
+        }
+
+        subscription = Flux.<PendingInsert>create(sink -> emitter = sink, FluxSink.OverflowStrategy.BUFFER)
+                .bufferTimeout(orderProperties.getWriteBehindBatchSize(),
+                        Duration.ofMillis(orderProperties.getWriteBehindMaxDelay()))
+                .flatMap(this::flush, orderProperties.getWriteBehindConcurrency())
+                .subscribe();
+        log.info("Order write-behind enabled (batch size {}, max delay {} ms)",
+                orderProperties.getWriteBehindBatchSize(), orderProperties.getWriteBehindMaxDelay());
+    }
+
+    public boolean isEnabled() {
+        return emitter != null;
+    }
+
+    public Mono<Order> insert(OrderCodec.NewOrder newOrder) {
+        return Mono.create(sink -> emitter.next(new PendingInsert(newOrder, sink)));
+    }
+
+    /**
+     * Bulk inserts the given orders now and emits one result per order, in input order.
+     * The documents already encoded by OrderCodec are sent as they are.
+     */
+    public Mono<List<InsertResult>> insertAll(List<OrderCodec.NewOrder> newOrders) {
+        if (newOrders.isEmpty()) {
+            return Mono.just(List.of());
+        }
+
+        List<Order> orders = new ArrayList<>(newOrders.size());
+        List<RawBsonDocument> documents = new ArrayList<>(newOrders.size());
+        for (OrderCodec.NewOrder newOrder : newOrders) {
+            orders.add(newOrder.getOrder());
+            documents.add(newOrder.getDocument());
+        }
+
+        return reactiveMongoTemplate.execute(Order.class, collection -> collection.withDocumentClass(RawBsonDocument.class)
+                        .insertMany(documents, UNORDERED))
+                .then(Mono.fromSupplier(() -> {
+                    List<InsertResult> results = new ArrayList<>(orders.size());
+                    orders.forEach(order -> results.add(new InsertResult(order, null)));
+                    return results;
+                }))
+                .onErrorResume(error -> Mono.just(mapBulkError(orders, error)));
+    }
+
+    private Mono<Void> flush(List<PendingInsert> batch) {
+        List<OrderCodec.NewOrder> orders = new ArrayList<>(batch.size());
+        batch.forEach(pending -> orders.add(pending.newOrder));
+
+        return insertAll(orders)
+                .doOnNext(results -> {
+                    for (int i = 0; i < batch.size(); i++) {
+                        batch.get(i).complete(results.get(i));
+                    }
+                })
+                .then();
+    }
+
+    private List<InsertResult> mapBulkError(List<Order> orders, Throwable error) {
+        List<BulkWriteError> writeErrors = findWriteErrors(error);
+        List<InsertResult> results = new ArrayList<>(orders.size());
+
+        if (writeErrors == null) {
+            // Not a per-document failure: the whole batch failed
+            log.error("Bulk insert of {} orders failed: {}", orders.size(), error.getMessage());
+            orders.forEach(order -> results.add(new InsertResult(order, error)));
+            return results;
+        }
+
+        Map<Integer, BulkWriteError> errorsByIndex = new HashMap<>();
+        writeErrors.forEach(writeError -> errorsByIndex.put(writeError.getIndex(), writeError));
+
+        for (int i = 0; i < orders.size(); i++) {
+            Order order = orders.get(i);
+            BulkWriteError writeError = errorsByIndex.get(i);
+            if (writeError == null) {
+                results.add(new InsertResult(order, null));
+            } else if (writeError.getCode() == DUPLICATE_KEY_ERROR) {
+                results.add(new InsertResult(order, new DuplicateKeyException(
+                        "Duplicate orderId " + order.getOrderId() + ": " + writeError.getMessage())));
+            } else {
+                results.add(new InsertResult(order, new IllegalStateException(
+                        "Insert of order " + order.getOrderId() + " failed: " + writeError.getMessage())));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Per-document errors of a failed bulk write, or null when the whole bulk write failed
+     */
+    static List<BulkWriteError> findWriteErrors(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof BulkOperationException) {
+                return ((BulkOperationException) cause).getErrors();
+            }
+            if (cause instanceof MongoBulkWriteException) {
+                return ((MongoBulkWriteException) cause).getWriteErrors();
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Outcome of one order in a bulk insert; error is null when the order was inserted
+     */
+    public static class InsertResult {
+        private final Order order;
+        private final Throwable error;
+
+        InsertResult(Order order, Throwable error) {
+            this.order = order;
+            this.error = error;
+        }
+
+        public Order getOrder() {
+            return order;
+        }
+
+        public Throwable getError() {
+            return error;
+        }
+
+        public boolean isDuplicate() {
+            return error instanceof DuplicateKeyException;
+        }
+    }
+
+    private static class PendingInsert {
+        private final OrderCodec.NewOrder newOrder;
+        private final MonoSink<Order> sink;
+
+        PendingInsert(OrderCodec.NewOrder newOrder, MonoSink<Order> sink) {
+            this.newOrder = newOrder;
+            this.sink = sink;
+        }
+
+        void complete(InsertResult result) {
+            if (result.getError() == null) {
+                sink.success(newOrder.getOrder());
+            } else {
+                sink.error(result.getError());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (emitter != null) {
+            emitter.complete();
+        }
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.hacom.telecom.order_processing_service.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.hacom.telecom.order_processing_service.config.OrderProperties;
+import com.hacom.telecom.order_processing_service.model.Order;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Size-bounded cache of orders by orderId in front of Mongo lookups.
+ *
+ * Concurrent lookups of the same order share one query. Entries expire after orders.cacheTtl,
+ * which bounds how stale a read can be when another instance changed the order.
+ * Orders that do not exist are not cached.
+ */
+@Component
+public class OrderCache {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderCache.class);
+
+    @Autowired
+    private OrderProperties orderProperties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private AsyncCache<String, Order> cache;
+
+    @PostConstruct
+    public void init() {
+        if (orderProperties.getCacheMaxSize() <= 0) {
+            log.info("Order lookup cache is disabled");
+            return;
+        }
+
+        cache = Caffeine.newBuilder()
+                .maximumSize(orderProperties.getCacheMaxSize())
+                .expireAfterWrite(Duration.ofMillis(orderProperties.getCacheTtl()))
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "orders", Tags.of("service", "order-processing"));
+        log.info("Order lookup cache enabled (max size {}, ttl {} ms)",
+                orderProperties.getCacheMaxSize(), orderProperties.getCacheTtl());
+    }
+
+    public Mono<Order> get(String orderId, Function<String, Mono<Order>> loader) {
+        if (cache == null) {
+            return loader.apply(orderId);
+        }
+        // suppressCancel: the future is shared with other readers of the same order
+        return Mono.fromFuture(() -> cache.get(orderId, (key, executor) -> loader.apply(key).toFuture()), true);
+    }
+
+    /**
+     * Drops the entry, including a lookup still in flight, so the next read goes to Mongo
+     */
+    public void invalidate(String orderId) {
+        if (cache != null) {
+            cache.synchronous().invalidate(orderId);
+        }
+    }
+}
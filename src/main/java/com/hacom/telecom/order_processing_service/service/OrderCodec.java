@@ -0,0 +1,251 @@
+package com.hacom.telecom.order_processing_service.service;
+
+import com.hacom.telecom.order_processing_service.grpc.CreateOrderRequest;
+import com.hacom.telecom.order_processing_service.model.Order;
+import com.hacom.telecom.order_processing_service.model.OrderItem;
+import org.bson.BsonBinaryWriter;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.bson.types.ObjectId;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hand-written BSON codec for the orders collection, used on the create and lookup hot paths
+ * instead of the reflective MappingMongoConverter. Produces the same document layout Spring
+ * Data writes for Order (minus _class), so both can read each other's documents.
+ */
+public class OrderCodec implements Codec<Order> {
+
+    private static final int FIXED_SIZE_ESTIMATE = 192;
+    private static final int ITEM_SIZE_ESTIMATE = 80;
+
+    /**
+     * Writes the request straight into a RawBsonDocument ready for insert, without building
+     * OrderItem objects. The returned Order carries every field except items.
+     */
+    public static NewOrder newOrder(CreateOrderRequest request, String status) {
+        ObjectId id = new ObjectId();
+        Order order = new Order(request.getOrderId(), request.getCustomerId(), request.getCustomerPhone(), null, status);
+        order.setId(id.toHexString());
+
+        BasicOutputBuffer buffer = new BasicOutputBuffer(FIXED_SIZE_ESTIMATE + request.getItemsCount() * ITEM_SIZE_ESTIMATE);
+        try (BsonBinaryWriter writer = new BsonBinaryWriter(buffer)) {
+            writer.writeStartDocument();
+            writer.writeObjectId("_id", id);
+            writer.writeString("orderId", request.getOrderId());
+            writer.writeString("customerId", request.getCustomerId());
+            writer.writeString("customerPhoneNumber", request.getCustomerPhone());
+            writer.writeStartArray("items");
+            for (int i = 0; i < request.getItemsCount(); i++) {
+                com.hacom.telecom.order_processing_service.grpc.OrderItem item = request.getItems(i);
+                writeItem(writer, item.getItemId(), item.getProductName(), item.getQuantity(), item.getPrice());
+            }
+            writer.writeEndArray();
+            writer.writeString("status", status);
+            writer.writeDateTime("ts", order.getTs().toInstant().toEpochMilli());
+            writer.writeEndDocument();
+        }
+        return new NewOrder(order, new RawBsonDocument(buffer.getInternalBuffer(), 0, buffer.getPosition()));
+    }
+
+    /**
+     * Same document as newOrder(CreateOrderRequest, String), written from a queued PackedOrder.
+     * The caller releases the packed order once this returns.
+     */
+    public static NewOrder newOrder(PackedOrder packed, String status) {
+        ObjectId id = new ObjectId();
+        Order order = new Order(packed.getOrderId(), packed.getCustomerId(), packed.getCustomerPhone(), null, status);
+        order.setId(id.toHexString());
+
+        BasicOutputBuffer buffer = new BasicOutputBuffer(FIXED_SIZE_ESTIMATE + packed.getItemCount() * ITEM_SIZE_ESTIMATE);
+        try (BsonBinaryWriter writer = new BsonBinaryWriter(buffer)) {
+            writer.writeStartDocument();
+            writer.writeObjectId("_id", id);
+            writer.writeString("orderId", order.getOrderId());
+            writer.writeString("customerId", order.getCustomerId());
+            writer.writeString("customerPhoneNumber", order.getCustomerPhoneNumber());
+            writer.writeStartArray("items");
+            packed.forEachItem((itemId, productName, quantity, price) -> writeItem(writer, itemId, productName, quantity, price));
+            writer.writeEndArray();
+            writer.writeString("status", status);
+            writer.writeDateTime("ts", order.getTs().toInstant().toEpochMilli());
+            writer.writeEndDocument();
+        }
+        return new NewOrder(order, new RawBsonDocument(buffer.getInternalBuffer(), 0, buffer.getPosition()));
+    }
+
+    @Override
+    public void encode(BsonWriter writer, Order order, EncoderContext encoderContext) {
+        writer.writeStartDocument();
+        if (order.getId() == null) {
+            writer.writeObjectId("_id", new ObjectId());
+        } else if (ObjectId.isValid(order.getId())) {
+            writer.writeObjectId("_id", new ObjectId(order.getId()));
+        } else {
+            writer.writeString("_id", order.getId());
+        }
+        writeString(writer, "orderId", order.getOrderId());
+        writeString(writer, "customerId", order.getCustomerId());
+        writeString(writer, "customerPhoneNumber", order.getCustomerPhoneNumber());
+        if (order.getItems() != null) {
+            writer.writeStartArray("items");
+            for (OrderItem item : order.getItems()) {
+                writeItem(writer, item.getItemId(), item.getProductName(), item.getQuantity(), item.getPrice());
+            }
+            writer.writeEndArray();
+        }
+        writeString(writer, "status", order.getStatus());
+        if (order.getTs() != null) {
+            writer.writeDateTime("ts", order.getTs().toInstant().toEpochMilli());
+        }
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public Order decode(BsonReader reader, DecoderContext decoderContext) {
+        Order order = new Order();
+        String status = null;
+        OffsetDateTime ts = null;
+
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            String name = reader.readName();
+            if (reader.getCurrentBsonType() == BsonType.NULL) {
+                reader.readNull();
+                continue;
+            }
+            switch (name) {
+                case "_id":
+                    order.setId(reader.getCurrentBsonType() == BsonType.OBJECT_ID
+                            ? reader.readObjectId().toHexString()
+                            : reader.readString());
+                    break;
+                case "orderId":
+                    order.setOrderId(reader.readString());
+                    break;
+                case "customerId":
+                    order.setCustomerId(reader.readString());
+                    break;
+                case "customerPhoneNumber":
+                    order.setCustomerPhoneNumber(reader.readString());
+                    break;
+                case "items":
+                    order.setItems(readItems(reader));
+                    break;
+                case "status":
+                    status = reader.readString();
+                    break;
+                case "ts":
+                    ts = Instant.ofEpochMilli(reader.readDateTime()).atOffset(ZoneOffset.UTC);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+
+        // setStatus stamps ts, so the stored ts goes last
+        order.setStatus(status);
+        order.setTs(ts);
+        return order;
+    }
+
+    @Override
+    public Class<Order> getEncoderClass() {
+        return Order.class;
+    }
+
+    private static void writeItem(BsonWriter writer, String itemId, String productName, int quantity, double price) {
+        writer.writeStartDocument();
+        writer.writeString("itemId", itemId);
+        writer.writeString("productName", productName);
+        writer.writeInt32("quantity", quantity);
+        writer.writeDouble("price", price);
+        writer.writeEndDocument();
+    }
+
+    private static void writeString(BsonWriter writer, String name, String value) {
+        if (value != null) {
+            writer.writeString(name, value);
+        }
+    }
+
+    private static List<OrderItem> readItems(BsonReader reader) {
+        List<OrderItem> items = new ArrayList<>();
+        reader.readStartArray();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            OrderItem item = new OrderItem();
+            reader.readStartDocument();
+            while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                String name = reader.readName();
+                if (reader.getCurrentBsonType() == BsonType.NULL) {
+                    reader.readNull();
+                    continue;
+                }
+                switch (name) {
+                    case "itemId":
+                        item.setItemId(reader.readString());
+                        break;
+                    case "productName":
+                        item.setProductName(reader.readString());
+                        break;
+                    case "quantity":
+                        item.setQuantity((int) readNumber(reader));
+                        break;
+                    case "price":
+                        item.setPrice(readNumber(reader));
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.readEndDocument();
+            items.add(item);
+        }
+        reader.readEndArray();
+        return items;
+    }
+
+    private static double readNumber(BsonReader reader) {
+        switch (reader.getCurrentBsonType()) {
+            case INT32:
+                return reader.readInt32();
+            case INT64:
+                return reader.readInt64();
+            default:
+                return reader.readDouble();
+        }
+    }
+
+    /**
+     * An encoded order ready for insert, plus the same order as a model object without its items
+     */
+    public static class NewOrder {
+        private final Order order;
+        private final RawBsonDocument document;
+
+        NewOrder(Order order, RawBsonDocument document) {
+            this.order = order;
+            this.document = document;
+        }
+
+        public Order getOrder() {
+            return order;
+        }
+
+        public RawBsonDocument getDocument() {
+            return document;
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package com.hacom.telecom.order_processing_service.service;
+
+import com.hacom.telecom.order_processing_service.config.OrderProperties;
+import com.hacom.telecom.order_processing_service.model.Order;
+import com.hacom.telecom.order_processing_service.model.OrderCountBucket;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-minute/hour/day order counts by ts, kept in the order_counts collection.
+ *
+ * The buckets are never incremented: every orders.rollupReconcileInterval ms each instance
+ * recomputes the closed minutes from the orders collection and $sets them, then rebuilds the
+ * hour and day buckets around them from the minute buckets. A pass re-reads the last
+ * orders.rollupReconcileLookback ms before the covered-until mark, so status updates (the only
+ * change to an order's ts, right after it is created) are picked up; the very first pass on a
+ * database counts every order. Passes are idempotent, so instances running them concurrently
+ * only repeat work.
+ *
+ * A range count sums whole buckets below the covered-until mark, using the coarsest granularity
+ * that fits, and counts the partial minutes at the edges and everything above the mark exactly
+ * on the orders collection. The result is eventually consistent: an order moved out of a closed
+ * minute still counts there until the next pass.
+ */
+@Component
+public class OrderCountRollup {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderCountRollup.class);
+
+    private static final long MINUTE = 60_000;
+    private static final long HOUR = 60 * MINUTE;
+    private static final long DAY = 24 * HOUR;
+    private static final String COVERAGE_ID = "coverage";
+    // Orders in flight, or from an instance with a slow clock, land before their minute is closed
+    private static final long SETTLE = MINUTE;
+
+    @Autowired
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @Autowired
+    private OrderProperties orderProperties;
+
+    // Buckets are complete below this; 0 until the first pass on the database finishes
+    private volatile long coveredUntil;
+    private String collection;
+    private Disposable reconciler;
+
+    @PostConstruct
+    public void init() {
+        collection = reactiveMongoTemplate.getCollectionName(OrderCountBucket.class);
+
+        reconciler = Flux.interval(Duration.ZERO, Duration.ofMillis(orderProperties.getRollupReconcileInterval()))
+                .onBackpressureDrop()
+                .concatMap(tick -> reconcile()
+                        .onErrorResume(error -> {
+                            log.error("Error reconciling order count rollup: {}", error.getMessage());
+                            return Mono.empty();
+                        }))
+                .subscribe();
+    }
+
+    /**
+     * Orders with startDate < ts < endDate, the same bounds as the former countByTsBetween
+     */
+    public Mono<Long> count(OffsetDateTime startDate, OffsetDateTime endDate) {
+        // Bounds are stored as millisecond dates: ts > start is ts >= start + 1ms
+        long from = startDate.toInstant().toEpochMilli() + 1;
+        long to = endDate.toInstant().toEpochMilli();
+
+        List<Mono<Long>> parts = new ArrayList<>();
+        long covered = Math.min(to, coveredUntil);
+        if (from < covered) {
+            long firstBucket = ceil(from, MINUTE);
+            long lastBucket = floor(covered, MINUTE);
+            if (firstBucket >= lastBucket) {
+                parts.add(countOrders(from, covered));
+            } else {
+                parts.add(countOrders(from, firstBucket));
+                parts.add(sumBuckets(firstBucket, lastBucket));
+                parts.add(countOrders(lastBucket, covered));
+            }
+            from = covered;
+        }
+        parts.add(countOrders(from, to));
+        return Flux.merge(parts).reduce(0L, Long::sum);
+    }
+
+    /**
+     * Exact count of orders with from <= ts < to
+     */
+    private Mono<Long> countOrders(long from, long to) {
+        if (from >= to) {
+            return Mono.just(0L);
+        }
+        Query query = Query.query(Criteria.where("ts").gte(Instant.ofEpochMilli(from)).lt(Instant.ofEpochMilli(to)));
+        return reactiveMongoTemplate.count(query, Order.class);
+    }
+
+    /**
+     * Sum of the buckets covering [from, to), both minute aligned
+     */
+    private Mono<Long> sumBuckets(long from, long to) {
+        Criteria criteria = new Criteria().orOperator(decompose(from, to).stream()
+                .map(range -> Criteria.where("granularity").is(range.granularity)
+                        .and("bucketStart").gte(Instant.ofEpochMilli(range.from)).lt(Instant.ofEpochMilli(range.to)))
+                .toArray(Criteria[]::new));
+
+        return reactiveMongoTemplate.aggregate(Aggregation.newAggregation(
+                        Aggregation.match(criteria),
+                        Aggregation.group().sum("count").as("total")), collection, Document.class)
+                .next()
+                .map(result -> ((Number) result.get("total")).longValue())
+                .defaultIfEmpty(0L);
+    }
+
+    /**
+     * Splits [from, to) into day buckets in the middle, hour buckets around them and minute
+     * buckets at the ends, so at most ~2 x (60 + 24) buckets are read for any range
+     */
+    static List<BucketRange> decompose(long from, long to) {
+        List<BucketRange> ranges = new ArrayList<>();
+        long firstHour = ceil(from, HOUR);
+        long lastHour = floor(to, HOUR);
+        if (firstHour >= lastHour) {
+            ranges.add(new BucketRange(OrderCountBucket.MINUTE, from, to));
+            return ranges;
+        }
+        ranges.add(new BucketRange(OrderCountBucket.MINUTE, from, firstHour));
+        ranges.add(new BucketRange(OrderCountBucket.MINUTE, lastHour, to));
+
+        long firstDay = ceil(firstHour, DAY);
+        long lastDay = floor(lastHour, DAY);
+        if (firstDay >= lastDay) {
+            ranges.add(new BucketRange(OrderCountBucket.HOUR, firstHour, lastHour));
+        } else {
+            ranges.add(new BucketRange(OrderCountBucket.HOUR, firstHour, firstDay));
+            ranges.add(new BucketRange(OrderCountBucket.HOUR, lastDay, lastHour));
+            ranges.add(new BucketRange(OrderCountBucket.DAY, firstDay, lastDay));
+        }
+        ranges.removeIf(range -> range.from >= range.to);
+        return ranges;
+    }
+
+    /**
+     * One pass: recomputes the minute buckets in [start, until) from the orders collection and
+     * the hour and day buckets that overlap it from the minute buckets, then advances the
+     * covered-until mark. The hour and day holding until are rebuilt whole on a later pass,
+     * before the mark moves past them.
+     */
+    Mono<Void> reconcile() {
+        long until = floor(System.currentTimeMillis() - SETTLE, MINUTE);
+        Instant passStart = Instant.now();
+        return reactiveMongoTemplate.findById(COVERAGE_ID, Document.class, collection)
+                .map(coverage -> coverage.getDate("until").getTime())
+                .defaultIfEmpty(0L)
+                .doOnNext(covered -> coveredUntil = covered)
+                .flatMap(covered -> {
+                    long start = covered == 0
+                            ? 0
+                            : Math.max(0, floor(covered - orderProperties.getRollupReconcileLookback(), MINUTE));
+                    if (start >= until) {
+                        return Mono.empty();
+                    }
+                    if (covered == 0) {
+                        log.info("Counting every order before {} into the order count rollup", Instant.ofEpochMilli(until));
+                    }
+                    long hourStart = floor(start, HOUR);
+                    long dayStart = floor(start, DAY);
+                    return recount(reactiveMongoTemplate.getCollectionName(Order.class), "ts", null,
+                                    OrderCountBucket.MINUTE, MINUTE, start, until, passStart)
+                            .then(recount(collection, "bucketStart", OrderCountBucket.MINUTE,
+                                    OrderCountBucket.HOUR, HOUR, hourStart, until, passStart))
+                            .then(recount(collection, "bucketStart", OrderCountBucket.MINUTE,
+                                    OrderCountBucket.DAY, DAY, dayStart, until, passStart))
+                            .then(advance(until));
+                })
+                .doOnNext(covered -> coveredUntil = covered)
+                .then();
+    }
+
+    /**
+     * $sets the granularity buckets in [from, to) to what the source documents with a field in
+     * that range add up to (1 per order, or the count of each minute bucket), and removes the
+     * buckets in the range this pass found nothing for
+     */
+    private Mono<Void> recount(String source, String field, String sourceGranularity,
+                               String granularity, long size, long from, long to, Instant passStart) {
+        Document match = new Document(field, new Document("$gte", new Date(from)).append("$lt", new Date(to)));
+        if (sourceGranularity != null) {
+            match.append("granularity", sourceGranularity);
+        }
+        Document millis = new Document("$toLong", "$" + field);
+        List<Document> pipeline = List.of(
+                new Document("$match", match),
+                new Document("$group", new Document("_id",
+                        new Document("$subtract", List.of(millis, new Document("$mod", List.of(millis, size)))))
+                        .append("count", new Document("$sum", sourceGranularity == null ? 1L : "$count"))));
+
+        Map<Long, Long> counts = new HashMap<>();
+        return reactiveMongoTemplate.getCollection(source)
+                .flatMapMany(documents -> documents.aggregate(pipeline).allowDiskUse(true))
+                .doOnNext(bucket -> counts.put(((Number) bucket.get("_id")).longValue(), ((Number) bucket.get("count")).longValue()))
+                .then(Mono.defer(() -> writeBuckets(granularity, counts, passStart)))
+                .then(Mono.defer(() -> reactiveMongoTemplate.remove(Query.query(Criteria.where("granularity").is(granularity)
+                        .and("bucketStart").gte(Instant.ofEpochMilli(from)).lt(Instant.ofEpochMilli(to))
+                        .and("reconciledAt").not().gte(passStart)), collection)))
+                .then();
+    }
+
+    private Mono<Void> writeBuckets(String granularity, Map<Long, Long> counts, Instant passStart) {
+        if (counts.isEmpty()) {
+            return Mono.empty();
+        }
+        ReactiveBulkOperations bulk = reactiveMongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, OrderCountBucket.class);
+        counts.forEach((bucketStart, count) -> bulk.upsert(
+                Query.query(Criteria.where("_id").is(OrderCountBucket.id(granularity, bucketStart))),
+                new Update()
+                        .setOnInsert("granularity", granularity)
+                        .setOnInsert("bucketStart", Instant.ofEpochMilli(bucketStart))
+                        .set("count", count)
+                        .set("reconciledAt", passStart)));
+        return bulk.execute().then();
+    }
+
+    /**
+     * Moves the covered-until mark forward (never back, another instance may be ahead) and
+     * emits where it ends up
+     */
+    private Mono<Long> advance(long until) {
+        return reactiveMongoTemplate.findAndModify(Query.query(Criteria.where("_id").is(COVERAGE_ID)),
+                        new Update().max("until", new Date(until)),
+                        FindAndModifyOptions.options().upsert(true).returnNew(true), Document.class, collection)
+                .map(coverage -> coverage.getDate("until").getTime());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (reconciler != null) {
+            reconciler.dispose();
+        }
+    }
+
+    private static long floor(long millis, long size) {
+        return Math.floorDiv(millis, size) * size;
+    }
+
+    private static long ceil(long millis, long size) {
+        return -Math.floorDiv(-millis, size) * size;
+    }
+
+    static class BucketRange {
+        final String granularity;
+        final long from;
+        final long to;
+
+        BucketRange(String granularity, long from, long to) {
+            this.granularity = granularity;
+            this.from = from;
+            this.to = to;
+        }
+    }
+}
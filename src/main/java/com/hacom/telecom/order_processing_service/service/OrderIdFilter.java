@@ -0,0 +1,245 @@
+package com.hacom.telecom.order_processing_service.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.hacom.telecom.order_processing_service.config.OrderProperties;
+import com.hacom.telecom.order_processing_service.model.Order;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.bson.BsonType;
+import org.bson.RawBsonDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Answers "have we ever seen this orderId?" without going to Mongo.
+ *
+ * A bloom filter over every orderId in the orders collection says "definitely new" or "maybe
+ * seen"; a bounded set of recently created or seen ids says "seen" exactly. The filter is built
+ * by streaming every orderId (a covered query on the orderId index once it exists) at startup
+ * and rebuilt every orders.idFilterRebuildInterval ms, or sooner once it holds more ids than it
+ * was sized for, which also picks up orders created by other instances. A failed build is
+ * retried with a short backoff rather than waiting for the next interval.
+ *
+ * NEW is only a hint: the unique index on orderId still rejects an order another instance
+ * created since the last rebuild, and callers handle that as before.
+ */
+@Component
+public class OrderIdFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderIdFilter.class);
+
+    private static final long MIN_EXPECTED_IDS = 1_000_000;
+    private static final int SCAN_BATCH_SIZE = 10_000;
+    private static final int REBUILD_RETRIES = 5;
+    private static final Duration REBUILD_BACKOFF = Duration.ofSeconds(1);
+    private static final Duration REBUILD_MAX_BACKOFF = Duration.ofSeconds(30);
+
+    public enum Result {
+        /** Not in the bloom filter: the id was never stored */
+        NEW,
+        /** In the recent set: the id was stored */
+        RECENT,
+        /** In the bloom filter only: stored, or a false positive */
+        MAYBE,
+        /** Filter disabled or still warming up */
+        UNKNOWN
+    }
+
+    @Autowired
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @Autowired
+    private OrderProperties orderProperties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private volatile BloomFilter filter;
+    // Target of a rebuild in progress; ids added meanwhile go to both filters
+    private volatile BloomFilter next;
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    // False once the filter is as large as orders.idFilterMaxBytes allows; rebuilding would not help
+    private volatile boolean growable = true;
+    private Cache<String, Boolean> recent;
+    private Disposable rebuilder;
+
+    private Counter newCounter;
+    private Counter recentCounter;
+    private Counter maybeCounter;
+    private Counter falsePositiveCounter;
+
+    @PostConstruct
+    public void init() {
+        if (!orderProperties.isIdFilterEnabled()) {
+            log.info("OrderId filter is disabled");
+            return;
+        }
+
+        recent = Caffeine.newBuilder()
+                .maximumSize(orderProperties.getIdFilterRecentSize())
+                .build();
+
+        newCounter = check(Result.NEW);
+        recentCounter = check(Result.RECENT);
+        maybeCounter = check(Result.MAYBE);
+        falsePositiveCounter = Counter.builder("orders.idfilter.false_positives")
+                .description("orderIds the bloom filter reported as maybe seen that turned out to be new")
+                .tag("service", "order-processing")
+                .register(meterRegistry);
+        Gauge.builder("orders.idfilter.ids", this, idFilter -> idFilter.filter == null ? 0 : idFilter.filter.getCount())
+                .description("orderIds held by the bloom filter")
+                .tag("service", "order-processing")
+                .register(meterRegistry);
+        Gauge.builder("orders.idfilter.expected_fpp", this,
+                        idFilter -> idFilter.filter == null ? 0 : idFilter.filter.getExpectedFalsePositiveRate())
+                .description("False positive rate expected from the bloom filter at its current fill")
+                .tag("service", "order-processing")
+                .register(meterRegistry);
+
+        rebuilder = Flux.interval(Duration.ZERO, Duration.ofMillis(orderProperties.getIdFilterRebuildInterval()))
+                .onBackpressureDrop()
+                .concatMap(tick -> rebuild())
+                .subscribe();
+    }
+
+    public Result check(String orderId) {
+        BloomFilter current = filter;
+        if (current == null) {
+            return Result.UNKNOWN;
+        }
+        if (recent.getIfPresent(orderId) != null) {
+            recentCounter.increment();
+            return Result.RECENT;
+        }
+        if (!current.mightContain(orderId)) {
+            newCounter.increment();
+            return Result.NEW;
+        }
+        maybeCounter.increment();
+        return Result.MAYBE;
+    }
+
+    /**
+     * The order was inserted; seen is what check() answered for it before the insert
+     */
+    public void created(String orderId, Result seen) {
+        if (seen == Result.MAYBE) {
+            falsePositiveCounter.increment();
+        }
+        add(orderId);
+    }
+
+    /**
+     * The order turned out to exist already (duplicate key or lookup)
+     */
+    public void existing(String orderId) {
+        add(orderId);
+    }
+
+    private void add(String orderId) {
+        if (recent == null) {
+            return;
+        }
+        recent.put(orderId, Boolean.TRUE);
+        BloomFilter current = filter;
+        if (current != null) {
+            current.add(orderId);
+            if (growable && current.getCount() > current.getCapacity() && !rebuilding.get()) {
+                rebuild().subscribe();
+            }
+        }
+        BloomFilter target = next;
+        if (target != null) {
+            target.add(orderId);
+        }
+    }
+
+    /**
+     * Builds a filter sized for twice the current number of orders from the orderId index and
+     * swaps it in; until the first build finishes every check answers UNKNOWN
+     */
+    private Mono<Void> rebuild() {
+        return Mono.defer(() -> {
+            if (!rebuilding.compareAndSet(false, true)) {
+                return Mono.<Void>empty();
+            }
+            long startedAt = System.nanoTime();
+            return reactiveMongoTemplate.estimatedCount(Order.class)
+                    .flatMap(estimated -> {
+                        long expected = Math.max(MIN_EXPECTED_IDS, estimated * 2);
+                        BloomFilter target = BloomFilter.create(expected,
+                                orderProperties.getIdFilterFalsePositiveRate(), orderProperties.getIdFilterMaxBytes());
+                        if (target.getCapacity() < estimated) {
+                            log.warn("OrderId filter budget of {} bytes holds {} ids at the target false positive rate, "
+                                    + "the collection has ~{}", orderProperties.getIdFilterMaxBytes(), target.getCapacity(), estimated);
+                        }
+                        next = target;
+                        return scanOrderIds()
+                                .doOnNext(target::add)
+                                .count()
+                                .doOnNext(scanned -> {
+                                    filter = target;
+                                    growable = target.getCapacity() >= expected;
+                                    log.info("OrderId filter rebuilt with {} ids ({} bytes) in {} ms", scanned,
+                                            target.getSizeInBytes(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+                                });
+                    })
+                    .doOnError(error -> log.warn("Error rebuilding the orderId filter, retrying: {}", error.getMessage()))
+                    .retryWhen(Retry.backoff(REBUILD_RETRIES, REBUILD_BACKOFF).maxBackoff(REBUILD_MAX_BACKOFF))
+                    .onErrorResume(error -> {
+                        log.error("Error rebuilding the orderId filter: {}", error.getMessage());
+                        return Mono.empty();
+                    })
+                    .doFinally(signal -> {
+                        next = null;
+                        rebuilding.set(false);
+                    })
+                    .then();
+        });
+    }
+
+    /**
+     * Every orderId. The string type filter lets the planner answer from the unique orderId index
+     * alone; no hint, so the scan still works while that index is missing or being built
+     */
+    private Flux<String> scanOrderIds() {
+        return reactiveMongoTemplate.execute(Order.class, collection -> collection.withDocumentClass(RawBsonDocument.class)
+                        .find(Filters.type("orderId", BsonType.STRING))
+                        .projection(Projections.fields(Projections.include("orderId"), Projections.excludeId()))
+                        .batchSize(SCAN_BATCH_SIZE))
+                .filter(document -> document.isString("orderId"))
+                .map(document -> document.getString("orderId").getValue());
+    }
+
+    private Counter check(Result result) {
+        return Counter.builder("orders.idfilter.checks")
+                .description("orderId filter answers; result=new is a duplicate lookup avoided")
+                .tag("service", "order-processing")
+                .tag("result", result.name().toLowerCase())
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (rebuilder != null) {
+            rebuilder.dispose();
+        }
+    }
+}
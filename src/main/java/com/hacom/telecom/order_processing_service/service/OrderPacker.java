@@ -0,0 +1,221 @@
+package com.hacom.telecom.order_processing_service.service;
+
+import com.hacom.telecom.order_processing_service.config.PipelineProperties;
+import com.hacom.telecom.order_processing_service.grpc.CreateOrderRequest;
+import com.hacom.telecom.order_processing_service.grpc.OrderItem;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Packs admitted orders into PackedOrder buffers so a queued order costs a few hundred bytes
+ * instead of the protobuf object graph.
+ *
+ * Item ids and product names repeat across orders, so they are interned into a bounded
+ * dictionary and stored as int refs. The dictionary never evicts; instead, once it holds
+ * pipeline.maxInternedIds values the next order starts a new one. Each PackedOrder keeps the
+ * dictionary it was packed with, so a retired dictionary is garbage once the orders that use it
+ * are gone, and ids that stopped appearing do not stay on the heap. With pipeline.offHeapEnabled the buffers are fixed-size chunks of direct
+ * ByteBuffer slabs, returned to a free list on release; orders that do not fit a chunk, or
+ * arrive while every chunk is taken, are packed on the heap.
+ */
+@Component
+public class OrderPacker {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderPacker.class);
+
+    private static final int MAX_SLAB_BYTES = 1 << 30;
+    // ref + ref + quantity + priceKind + price
+    private static final int ITEM_BYTES = 4 + 4 + 4 + 1 + 8;
+
+    @Autowired
+    private PipelineProperties pipelineProperties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final AtomicReference<Dictionary> dictionary = new AtomicReference<>();
+    private Counter dictionaryRotations;
+    private ArrayBlockingQueue<ByteBuffer> freeChunks;
+    private int chunkBytes;
+    private int chunkCount;
+
+    @PostConstruct
+    public void init() {
+        dictionary.set(new Dictionary(pipelineProperties.getMaxInternedIds()));
+
+        if (pipelineProperties.isOffHeapEnabled()) {
+            chunkBytes = pipelineProperties.getOffHeapChunkBytes();
+            long totalChunks = pipelineProperties.getOffHeapSlabBytes() / chunkBytes;
+            chunkCount = (int) Math.min(Integer.MAX_VALUE, totalChunks);
+            freeChunks = new ArrayBlockingQueue<>(Math.max(1, chunkCount));
+            int chunksPerSlab = Math.max(1, MAX_SLAB_BYTES / chunkBytes);
+            for (int allocated = 0; allocated < chunkCount; allocated += chunksPerSlab) {
+                int chunks = Math.min(chunksPerSlab, chunkCount - allocated);
+                ByteBuffer slab = ByteBuffer.allocateDirect(chunks * chunkBytes);
+                for (int chunk = 0; chunk < chunks; chunk++) {
+                    freeChunks.add(slab.slice(chunk * chunkBytes, chunkBytes));
+                }
+            }
+            Gauge.builder("orders.pipeline.offheap.used", this, packer -> packer.chunkCount - packer.freeChunks.size())
+                    .description("Off-heap chunks holding queued orders")
+                    .tag("service", "order-processing")
+                    .register(meterRegistry);
+            log.info("Queued orders packed off-heap: {} chunks of {} bytes", chunkCount, chunkBytes);
+        }
+
+        Gauge.builder("orders.pipeline.interned.ids", dictionary, current -> current.get().size())
+                .description("Item ids and product names in the current order packer dictionary")
+                .tag("service", "order-processing")
+                .register(meterRegistry);
+        dictionaryRotations = Counter.builder("orders.pipeline.interned.rotations")
+                .description("Full order packer dictionaries replaced by a new one")
+                .tag("service", "order-processing")
+                .register(meterRegistry);
+    }
+
+    public PackedOrder pack(CreateOrderRequest request) {
+        byte[] customerId = request.getCustomerId().getBytes(StandardCharsets.UTF_8);
+        byte[] customerPhone = request.getCustomerPhone().getBytes(StandardCharsets.UTF_8);
+        int itemCount = request.getItemsCount();
+        // Every ref of one order comes from the same dictionary
+        Dictionary refs = currentDictionary();
+
+        int[] itemRefs = new int[itemCount * 2];
+        byte[][] inline = null;
+        int size = 4 + customerId.length + 4 + customerPhone.length + 4 + itemCount * ITEM_BYTES;
+        for (int i = 0; i < itemCount; i++) {
+            OrderItem item = request.getItems(i);
+            for (int field = 0; field < 2; field++) {
+                String value = field == 0 ? item.getItemId() : item.getProductName();
+                int ref = refs.intern(value);
+                itemRefs[i * 2 + field] = ref;
+                if (ref == PackedOrder.INLINE) {
+                    if (inline == null) {
+                        inline = new byte[itemCount * 2][];
+                    }
+                    inline[i * 2 + field] = value.getBytes(StandardCharsets.UTF_8);
+                    size += 4 + inline[i * 2 + field].length;
+                }
+            }
+        }
+
+        ByteBuffer chunk = size <= chunkBytes && freeChunks != null ? freeChunks.poll() : null;
+        ByteBuffer buffer = chunk != null ? chunk.clear() : ByteBuffer.allocate(size);
+
+        putString(buffer, customerId);
+        putString(buffer, customerPhone);
+        buffer.putInt(itemCount);
+        for (int i = 0; i < itemCount; i++) {
+            OrderItem item = request.getItems(i);
+            for (int field = 0; field < 2; field++) {
+                int ref = itemRefs[i * 2 + field];
+                buffer.putInt(ref);
+                if (ref == PackedOrder.INLINE) {
+                    putString(buffer, inline[i * 2 + field]);
+                }
+            }
+            buffer.putInt(item.getQuantity());
+            double price = item.getPrice();
+            long cents = Math.round(price * 100);
+            if (cents / 100.0 == price) {
+                buffer.put(PackedOrder.PRICE_CENTS).putLong(cents);
+            } else {
+                buffer.put(PackedOrder.PRICE_DOUBLE).putLong(Double.doubleToRawLongBits(price));
+            }
+        }
+        return new PackedOrder(request.getOrderId(), buffer, size, chunk != null, this, refs);
+    }
+
+    void free(ByteBuffer chunk) {
+        freeChunks.offer(chunk);
+    }
+
+    /**
+     * The dictionary new orders are packed with; a full one is swapped for an empty one, and the
+     * orders still holding refs into the old one keep it alive until they are gone
+     */
+    private Dictionary currentDictionary() {
+        Dictionary current = dictionary.get();
+        if (!current.isFull()) {
+            return current;
+        }
+        Dictionary next = new Dictionary(current.capacity());
+        if (dictionary.compareAndSet(current, next)) {
+            dictionaryRotations.increment();
+            log.debug("Order packer dictionary full ({} values), starting a new one", current.capacity());
+            return next;
+        }
+        return dictionary.get();
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] bytes) {
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    /**
+     * One generation of interned values. Never evicts; when full, intern returns INLINE
+     */
+    static final class Dictionary {
+        private final Map<String, Integer> refs = new ConcurrentHashMap<>();
+        private final AtomicReferenceArray<String> values;
+        private final AtomicInteger nextRef = new AtomicInteger();
+
+        Dictionary(int capacity) {
+            values = new AtomicReferenceArray<>(capacity);
+        }
+
+        String lookup(int ref) {
+            return values.get(ref);
+        }
+
+        int capacity() {
+            return values.length();
+        }
+
+        int size() {
+            return Math.min(nextRef.get(), values.length());
+        }
+
+        boolean isFull() {
+            return nextRef.get() >= values.length();
+        }
+
+        /**
+         * Dictionary ref of the value, or INLINE once the dictionary is full
+         */
+        int intern(String value) {
+            Integer ref = refs.get(value);
+            if (ref != null) {
+                return ref;
+            }
+            if (isFull()) {
+                return PackedOrder.INLINE;
+            }
+            ref = refs.computeIfAbsent(value, key -> {
+                int next = nextRef.getAndIncrement();
+                if (next >= values.length()) {
+                    return null;
+                }
+                values.set(next, key);
+                return next;
+            });
+            return ref != null ? ref : PackedOrder.INLINE;
+        }
+    }
+}
@@ -0,0 +1,419 @@
+package com.hacom.telecom.order_processing_service.service;
+
+import akka.Done;
+import akka.actor.ActorSystem;
+import akka.stream.ActorAttributes;
+import akka.stream.Attributes;
+import akka.stream.BoundedSourceQueue;
+import akka.stream.Materializer;
+import akka.stream.QueueOfferResult;
+import akka.stream.Supervision;
+import akka.stream.javadsl.Sink;
+import akka.stream.javadsl.Source;
+import com.hacom.telecom.order_processing_service.actor.OrderMessages;
+import com.hacom.telecom.order_processing_service.config.ActorProperties;
+import com.hacom.telecom.order_processing_service.config.PipelineProperties;
+import com.hacom.telecom.order_processing_service.grpc.CreateOrderRequest;
+import com.hacom.telecom.order_processing_service.grpc.CreateOrderResponse;
+import io.grpc.Context;
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Order create path as an Akka Streams pipeline: ingest -> persist -> respond -> notify.
+ *
+ * Each stage runs behind its own async boundary on the order dispatcher with its own parallelism
+ * (pipeline.*Parallelism), so a slow stage only backs up the buffer in front of it. The gRPC
+ * response goes out as soon as the order is persisted; the status update and the SMS outbox
+ * insert happen afterwards in the notify stage. When notify falls behind, its buffer fills and
+ * backpressure reaches the bounded ingest buffer, where new orders are rejected.
+ *
+ * Every order carries the gRPC Context of its call. Orders whose client has gone away or whose
+ * deadline has passed are shed (orders.shed.total) when they leave the ingest buffer, before any
+ * Mongo work. Once the insert has been issued it always runs to completion and the order goes on
+ * to notify, so its bookkeeping, status update and SMS are not lost; only the response is skipped.
+ */
+@Service
+public class OrderPipeline {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderPipeline.class);
+
+    private static final String INGEST = "ingest";
+    private static final String RESPOND = "respond";
+    private static final String NOTIFY = "notify";
+    private static final String CANCELLED = "cancelled";
+    private static final String DEADLINE_EXCEEDED = "deadline_exceeded";
+
+    @Autowired
+    private ActorSystem actorSystem;
+
+    @Autowired
+    private ActorProperties actorProperties;
+
+    @Autowired
+    private PipelineProperties pipelineProperties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private Counter ordersRejectedCounter;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private SmsOutboxService smsOutboxService;
+
+    @Autowired
+    private OrderStageTimers orderStageTimers;
+
+    @Autowired
+    private OrderSummaryLogger orderSummaryLogger;
+
+    @Autowired
+    private OrderPacker orderPacker;
+
+    private BoundedSourceQueue<OrderMessages.ProcessOrder> ingest;
+    private Executor respondExecutor;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger ingestQueued = new AtomicInteger();
+    private final AtomicInteger respondQueued = new AtomicInteger();
+    private final AtomicInteger notifyQueued = new AtomicInteger();
+    private final Map<String, Counter> shedCounters = new HashMap<>();
+
+    @PostConstruct
+    public void init() {
+        String dispatcher = actorProperties.getDispatcher();
+        respondExecutor = actorSystem.dispatchers().lookup(dispatcher);
+        int stageBuffer = pipelineProperties.getStageBuffer();
+
+        ingest = Source.<OrderMessages.ProcessOrder>queue(pipelineProperties.getIngestBuffer())
+                .filter(this::admit)
+                .mapAsyncUnordered(pipelineProperties.getPersistParallelism(), this::persist)
+                .async(dispatcher, stageBuffer)
+                .mapAsyncUnordered(pipelineProperties.getRespondParallelism(), this::respond)
+                .async(dispatcher, stageBuffer)
+                .filter(persisted -> persisted.getError() == null)
+                .mapAsyncUnordered(pipelineProperties.getNotifyParallelism(), this::notify)
+                .addAttributes(Attributes.inputBuffer(stageBuffer, stageBuffer))
+                .addAttributes(ActorAttributes.dispatcher(dispatcher))
+                .addAttributes(ActorAttributes.withSupervisionStrategy(error -> {
+                    // Stages turn their failures into responses; this only keeps the stream alive on a bug
+                    log.error("Order pipeline stage failed, skipping element: {}", error.getMessage(), error);
+                    return (Supervision.Directive) Supervision.resume();
+                }))
+                .to(Sink.ignore())
+                .run(Materializer.matFromSystem(actorSystem));
+
+        queueGauge(INGEST, ingestQueued, "Orders admitted and waiting for a persist slot");
+        queueGauge(RESPOND, respondQueued, "Persisted orders waiting for their gRPC response");
+        queueGauge(NOTIFY, notifyQueued, "Answered orders waiting for the status update and SMS outbox insert");
+        for (String stage : new String[] {INGEST, RESPOND}) {
+            shedCounter(stage, CANCELLED);
+            shedCounter(stage, DEADLINE_EXCEEDED);
+        }
+        Gauge.builder("orders.inflight", inFlight, AtomicInteger::get)
+                .description("Number of orders admitted and not yet answered")
+                .tag("service", "order-processing")
+                .register(meterRegistry);
+
+        log.info("Order pipeline started on dispatcher '{}' (persist {}, respond {}, notify {})", dispatcher,
+                pipelineProperties.getPersistParallelism(), pipelineProperties.getRespondParallelism(),
+                pipelineProperties.getNotifyParallelism());
+    }
+
+    /**
+     * Admits the order unless pipeline.maxInFlight orders are waiting for a response or the ingest
+     * buffer is full. Returns false, without touching the observer, when the order is rejected.
+     */
+    public boolean processOrder(CreateOrderRequest request, StreamObserver<CreateOrderResponse> responseObserver) {
+        return processOrder(request, responseObserver, Context.current());
+    }
+
+    /**
+     * Same as above for callers that submit outside the gRPC callback thread, such as
+     * CreateOrdersStream retrying parked orders
+     */
+    public boolean processOrder(CreateOrderRequest request, StreamObserver<CreateOrderResponse> responseObserver,
+                                Context context) {
+        if (inFlight.incrementAndGet() > pipelineProperties.getMaxInFlight()) {
+            inFlight.decrementAndGet();
+            ordersRejectedCounter.increment();
+            return false;
+        }
+
+        OrderMessages.ProcessOrder message = new OrderMessages.ProcessOrder(
+            orderPacker.pack(request), new InFlightReleasingObserver(responseObserver), System.nanoTime(), context
+        );
+        ingestQueued.incrementAndGet();
+        QueueOfferResult result = ingest.offer(message);
+        if (!QueueOfferResult.enqueued().equals(result)) {
+            message.getPackedOrder().release();
+            ingestQueued.decrementAndGet();
+            inFlight.decrementAndGet();
+            ordersRejectedCounter.increment();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Reserves in-flight slots for orders answered outside the pipeline, such as a CreateOrderBatch
+     * call, against the same pipeline.maxInFlight budget. Returns false, reserving nothing, when
+     * they do not all fit; otherwise the caller must release(count) once the orders are answered.
+     */
+    public boolean reserve(int count) {
+        if (inFlight.addAndGet(count) > pipelineProperties.getMaxInFlight()) {
+            inFlight.addAndGet(-count);
+            ordersRejectedCounter.increment(count);
+            return false;
+        }
+        return true;
+    }
+
+    public void release(int count) {
+        inFlight.addAndGet(-count);
+    }
+
+    /**
+     * Drops orders nobody is waiting for before any Mongo work starts
+     */
+    private boolean admit(OrderMessages.ProcessOrder message) {
+        ingestQueued.decrementAndGet();
+        orderStageTimers.recordIngestWait(message.getEnqueuedAt());
+        if (message.isCancelled()) {
+            message.getPackedOrder().release();
+            try {
+                shed(message, INGEST);
+            } catch (RuntimeException e) {
+                log.warn("Could not close the call of shed order {}: {}", message.getOrderId(), e.getMessage());
+            } finally {
+                releaseInFlight(message);
+            }
+            return false;
+        }
+        return true;
+    }
+
+    private CompletionStage<OrderMessages.OrderPersisted> persist(OrderMessages.ProcessOrder message) {
+        log.debug("Saving order to database: {}", message.getOrderId());
+
+        // Encoded here, on the stream thread, so the packed buffer can go back to its pool before the insert
+        OrderCodec.NewOrder newOrder;
+        try {
+            newOrder = OrderCodec.newOrder(message.getPackedOrder(), "PENDING");
+        } catch (RuntimeException e) {
+            respondQueued.incrementAndGet();
+            return CompletableFuture.completedFuture(new OrderMessages.OrderPersisted(message, null, e));
+        } finally {
+            message.getPackedOrder().release();
+        }
+
+        // Not tied to the call's cancellation: a write already sent may land, and must then be notified
+        return Mono.defer(() -> orderService.createOrder(newOrder))
+                .map(order -> new OrderMessages.OrderPersisted(message, order, null))
+                .onErrorResume(error -> Mono.just(new OrderMessages.OrderPersisted(message, null, error)))
+                .switchIfEmpty(Mono.fromSupplier(() -> new OrderMessages.OrderPersisted(message, null,
+                        new IllegalStateException("Order was neither created nor found"))))
+                .doOnNext(persisted -> respondQueued.incrementAndGet())
+                .toFuture();
+    }
+
+    private CompletionStage<OrderMessages.OrderPersisted> respond(OrderMessages.OrderPersisted persisted) {
+        return CompletableFuture.supplyAsync(() -> {
+            respondQueued.decrementAndGet();
+            OrderMessages.ProcessOrder message = persisted.getProcessOrder();
+            boolean saved = persisted.getError() == null;
+            try {
+                if (message.isCancelled()) {
+                    shed(message, RESPOND);
+                } else if (saved) {
+                    respondSaved(persisted);
+                } else {
+                    respondError(persisted);
+                }
+            } catch (RuntimeException e) {
+                // Typically the call was cancelled or closed under us; the order itself is stored
+                log.warn("Could not answer order {}: {}", message.getOrderId(), e.getMessage());
+            } finally {
+                releaseInFlight(message);
+            }
+            // A saved order goes on to notify even if its call was cancelled or could not be answered,
+            // so it is not left PENDING without its SMS
+            if (saved) {
+                notifyQueued.incrementAndGet();
+            }
+            return persisted;
+        }, respondExecutor);
+    }
+
+    private void respondSaved(OrderMessages.OrderPersisted persisted) {
+        OrderMessages.ProcessOrder message = persisted.getProcessOrder();
+        log.debug("Sending success response for order: {}", message.getOrderId());
+
+        CreateOrderResponse response = CreateOrderResponse.newBuilder()
+                .setOrderId(message.getOrderId())
+                .setStatus("PROCESSING")
+                .setMessage("Order received and is being processed")
+                .build();
+
+        message.getResponseObserver().onNext(response);
+        message.getResponseObserver().onCompleted();
+        String outcome = persisted.isDuplicate() ? OrderStageTimers.DUPLICATE : OrderStageTimers.CREATED;
+        orderStageTimers.recordLifecycle(message.getEnqueuedAt(), outcome);
+        orderSummaryLogger.completed(message.getOrderId(), outcome, response.getStatus(), message.getEnqueuedAt());
+    }
+
+    private void respondError(OrderMessages.OrderPersisted persisted) {
+        OrderMessages.ProcessOrder message = persisted.getProcessOrder();
+        String errorMessage = persisted.getError().getMessage();
+        log.error("Error saving order {}: {}", message.getOrderId(), errorMessage);
+
+        CreateOrderResponse response = CreateOrderResponse.newBuilder()
+                .setOrderId(message.getOrderId())
+                .setStatus("ERROR")
+                .setMessage("Failed to process order: " + errorMessage)
+                .build();
+
+        message.getResponseObserver().onNext(response);
+        message.getResponseObserver().onCompleted();
+        orderStageTimers.recordLifecycle(message.getEnqueuedAt(), OrderStageTimers.ERROR);
+        orderSummaryLogger.failed(message.getOrderId(), message.getEnqueuedAt(), errorMessage);
+    }
+
+    /**
+     * PENDING -> PROCESSING and the SMS outbox insert, both after the client has its response.
+     * Failures are logged; the outbox dispatcher owns retries of the SMS itself.
+     */
+    private CompletionStage<Done> notify(OrderMessages.OrderPersisted persisted) {
+        notifyQueued.decrementAndGet();
+        String orderId = persisted.getOrderId();
+
+        Mono<Void> statusUpdate = Mono.defer(() -> {
+            long startedAt = System.nanoTime();
+            return orderService.updateStatus(orderId, "PENDING", "PROCESSING")
+                    .switchIfEmpty(Mono.fromRunnable(() -> {
+                        orderStageTimers.recordStatusUpdate(startedAt, false, false);
+                        log.debug("Order {} was not PENDING, status left unchanged", orderId);
+                    }))
+                    .doOnNext(status -> orderStageTimers.recordStatusUpdate(startedAt, true, false))
+                    .doOnError(error -> {
+                        orderStageTimers.recordStatusUpdate(startedAt, false, true);
+                        log.error("Error updating order status: {}", error.getMessage());
+                    })
+                    .then()
+                    .onErrorResume(error -> Mono.empty());
+        });
+
+        Mono<Void> enqueue = smsOutboxService
+                .enqueueOrderProcessedNotification(orderId, persisted.getProcessOrder().getCustomerPhone())
+                .doOnNext(entry -> log.debug("SMS notification queued for order: {}", entry.getOrderId()))
+                .doOnError(error -> log.error("Error queueing SMS notification: {}", error.getMessage()))
+                .then()
+                .onErrorResume(error -> Mono.empty());
+
+        return Mono.when(statusUpdate, enqueue)
+                .thenReturn(Done.getInstance())
+                .toFuture();
+    }
+
+    /**
+     * Frees the in-flight slot without building a response; the observer ignores writes to a cancelled call
+     */
+    private void shed(OrderMessages.ProcessOrder message, String stage) {
+        boolean expired = message.isDeadlineExceeded();
+        shedCounters.get(stage + ":" + (expired ? DEADLINE_EXCEEDED : CANCELLED)).increment();
+        log.debug("Shedding order {} at {}: {}", message.getOrderId(), stage, expired ? "deadline exceeded" : "call cancelled");
+        message.getResponseObserver().onError(
+                (expired ? Status.DEADLINE_EXCEEDED : Status.CANCELLED).asRuntimeException());
+    }
+
+    /**
+     * Frees the in-flight slot even when writing to the observer threw; a no-op once it was freed
+     */
+    private static void releaseInFlight(OrderMessages.ProcessOrder message) {
+        if (message.getResponseObserver() instanceof InFlightReleasingObserver) {
+            ((InFlightReleasingObserver) message.getResponseObserver()).release();
+        }
+    }
+
+    private void shedCounter(String stage, String reason) {
+        shedCounters.put(stage + ":" + reason, Counter.builder("orders.shed.total")
+                .description("Orders dropped because the gRPC call was cancelled or its deadline passed")
+                .tag("service", "order-processing")
+                .tag("stage", stage)
+                .tag("reason", reason)
+                .register(meterRegistry));
+    }
+
+    private void queueGauge(String stage, AtomicInteger queued, String description) {
+        Gauge.builder("orders.pipeline.queue", queued, AtomicInteger::get)
+                .description(description)
+                .tag("service", "order-processing")
+                .tag("stage", stage)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Frees the in-flight slot once the order has been answered
+     */
+    private class InFlightReleasingObserver implements StreamObserver<CreateOrderResponse> {
+
+        private final StreamObserver<CreateOrderResponse> delegate;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        InFlightReleasingObserver(StreamObserver<CreateOrderResponse> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void onNext(CreateOrderResponse response) {
+            delegate.onNext(response);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            release();
+            delegate.onError(t);
+        }
+
+        @Override
+        public void onCompleted() {
+            release();
+            delegate.onCompleted();
+        }
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (ingest != null) {
+            ingest.complete();
+        }
+        actorSystem.terminate();
+    }
+}
@@ -1,63 +1,285 @@
 package com.hacom.telecom.order_processing_service.service;
 
+import com.hacom.telecom.order_processing_service.config.OrderProperties;
+import com.hacom.telecom.order_processing_service.grpc.CreateOrderRequest;
 import com.hacom.telecom.order_processing_service.model.Order;
-import com.hacom.telecom.order_processing_service.model.OrderItem;
+import com.hacom.telecom.order_processing_service.model.OrderFilter;
+import com.hacom.telecom.order_processing_service.model.OrderPage;
+import com.hacom.telecom.order_processing_service.model.OrderSummary;
 import com.hacom.telecom.order_processing_service.repository.OrderRepository;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
 import io.micrometer.core.instrument.Counter;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.types.ObjectId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 public class OrderService {
 
     private static final Logger log = LoggerFactory.getLogger(OrderService.class);
 
+    private static final Sort KEYSET_SORT = Sort.by(Sort.Direction.ASC, "ts").and(Sort.by(Sort.Direction.ASC, "_id"));
+    private static final Sort NEWEST_FIRST = Sort.by(Sort.Direction.DESC, "ts").and(Sort.by(Sort.Direction.DESC, "_id"));
+
+    private static final CodecRegistry ORDER_CODECS = CodecRegistries.fromRegistries(
+            CodecRegistries.fromCodecs(new OrderCodec()), MongoClientSettings.getDefaultCodecRegistry());
+
     @Autowired
     private OrderRepository orderRepository;
 
+    @Autowired
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @Autowired
+    private OrderBatchWriter orderBatchWriter;
+
     @Autowired
     private Counter ordersCreatedCounter;
 
     @Autowired
     private Counter ordersDuplicateCounter;
 
-    public Mono<Order> createOrder(String orderId, String customerId, String customerPhoneNumber, List<OrderItem> items) {
-        return orderRepository.findByOrderId(orderId)
-                .doOnNext(existingOrder -> {
-                    log.info("Order with orderId '{}' already exists. Returning existing order with status: {}", 
-                            orderId, existingOrder.getStatus());
-                    ordersDuplicateCounter.increment();
-                })
-                .switchIfEmpty(
-                    Mono.defer(() -> {
-                        log.info("Creating new order with orderId: {}", orderId);
-                        Order newOrder = new Order(orderId, customerId, customerPhoneNumber, items, "PENDING");
-                        return orderRepository.save(newOrder)
-                                .doOnSuccess(savedOrder -> {
-                                    log.info("New order successfully created with orderId: {}, status: {}", 
-                                            orderId, savedOrder.getStatus());
-                                    ordersCreatedCounter.increment();
-                                });
+    @Autowired
+    private OrderStageTimers orderStageTimers;
+
+    @Autowired
+    private OrderCache orderCache;
+
+    @Autowired
+    private OrderCountRollup orderCountRollup;
+
+    @Autowired
+    private OrderProperties orderProperties;
+
+    @Autowired
+    private OrderIdFilter orderIdFilter;
+
+    /**
+     * Inserts the order in a single round trip. The unique index on orderId rejects
+     * duplicates, in which case the existing order is returned instead. With write-behind
+     * enabled the insert is grouped with other new orders into one bulk write.
+     *
+     * The order arrives already encoded to BSON by OrderCodec (status PENDING), so a newly
+     * created order is emitted without its items; a duplicate is emitted as read from Mongo.
+     * An orderId that OrderIdFilter knows was created recently (a client retry) is read first
+     * instead of paying for an insert that would fail.
+     */
+    public Mono<Order> createOrder(OrderCodec.NewOrder newOrder) {
+        String orderId = newOrder.getOrder().getOrderId();
+        log.debug("Creating new order with orderId: {}", orderId);
+        OrderIdFilter.Result seen = orderIdFilter.check(orderId);
+        if (seen == OrderIdFilter.Result.RECENT) {
+            return findExistingOrder(orderId).switchIfEmpty(Mono.defer(() -> insertOrder(newOrder, seen)));
+        }
+        return insertOrder(newOrder, seen);
+    }
+
+    private Mono<Order> insertOrder(OrderCodec.NewOrder newOrder, OrderIdFilter.Result seen) {
+        String orderId = newOrder.getOrder().getOrderId();
+        Mono<Order> insert = orderBatchWriter.isEnabled()
+                ? orderBatchWriter.insert(newOrder)
+                : reactiveMongoTemplate.execute(Order.class, collection -> collection.withDocumentClass(RawBsonDocument.class)
+                        .insertOne(newOrder.getDocument()))
+                        .then(Mono.just(newOrder.getOrder()));
+        return Mono.defer(() -> {
+            long startedAt = System.nanoTime();
+            return insert
+                    .doOnSuccess(savedOrder -> {
+                        orderStageTimers.recordPersist(startedAt, OrderStageTimers.CREATED);
+                        orderIdFilter.created(orderId, seen);
+                        log.debug("New order successfully created with orderId: {}, status: {}", 
+                                orderId, savedOrder.getStatus());
+                        ordersCreatedCounter.increment();
                     })
-                );
+                    .doOnError(error -> !(error instanceof DuplicateKeyException),
+                            error -> orderStageTimers.recordPersist(startedAt, OrderStageTimers.ERROR))
+                    .onErrorResume(DuplicateKeyException.class, e -> {
+                        orderStageTimers.recordPersist(startedAt, OrderStageTimers.DUPLICATE);
+                        return findExistingOrder(orderId);
+                    });
+        });
     }
 
-    public Mono<Order> updateOrderStatus(String orderId, String status) {
-        return orderRepository.findByOrderId(orderId)
-                .flatMap(order -> {
-                    order.setStatus(status);
-                    return orderRepository.save(order);
+    /**
+     * Creates a batch of orders with one $in lookup of the orderIds that already exist and one
+     * unordered bulk insert of the rest. Emits one result per request, in request order: the new
+     * order, the existing order flagged as duplicate (also for an orderId repeated within the
+     * batch), or the error for that order. The batch is answered once the insert is done, so new
+     * orders are stored directly as PROCESSING instead of going through PENDING. OrderIds that
+     * OrderIdFilter reports as new are left out of the lookup.
+     */
+    public Mono<List<OrderBatchWriter.InsertResult>> createOrders(List<CreateOrderRequest> requests) {
+        Map<String, OrderIdFilter.Result> seen = new HashMap<>();
+        Set<String> lookupIds = new HashSet<>();
+        for (CreateOrderRequest request : requests) {
+            String orderId = request.getOrderId();
+            if (!seen.containsKey(orderId)) {
+                OrderIdFilter.Result result = orderIdFilter.check(orderId);
+                seen.put(orderId, result);
+                if (result != OrderIdFilter.Result.NEW) {
+                    lookupIds.add(orderId);
+                }
+            }
+        }
+
+        return findExistingOrders(lookupIds)
+                .flatMap(existing -> {
+                    Map<String, OrderCodec.NewOrder> newOrders = new LinkedHashMap<>();
+                    for (CreateOrderRequest request : requests) {
+                        if (!existing.containsKey(request.getOrderId())) {
+                            newOrders.computeIfAbsent(request.getOrderId(), orderId -> OrderCodec.newOrder(request, "PROCESSING"));
+                        }
+                    }
+                    return orderBatchWriter.insertAll(new ArrayList<>(newOrders.values()))
+                            .flatMapMany(Flux::fromIterable)
+                            // Inserted by someone else since the lookup
+                            .concatMap(result -> result.isDuplicate()
+                                    ? readOrder(result.getOrder().getOrderId())
+                                            .map(order -> new OrderBatchWriter.InsertResult(order, null))
+                                            .doOnNext(found -> found.getOrder().setDuplicate(true))
+                                            .defaultIfEmpty(result)
+                                    : Mono.just(result))
+                            .collectMap(result -> result.getOrder().getOrderId())
+                            .map(inserted -> batchResults(requests, seen, existing, inserted));
                 });
     }
 
+    private Mono<Map<String, Order>> findExistingOrders(Set<String> orderIds) {
+        if (orderIds.isEmpty()) {
+            return Mono.just(Map.of());
+        }
+        return reactiveMongoTemplate.execute(Order.class, collection -> collection.withDocumentClass(Order.class)
+                        .withCodecRegistry(ORDER_CODECS)
+                        .find(Filters.in("orderId", orderIds))
+                        .projection(Projections.include("orderId", "customerId", "customerPhoneNumber", "status", "ts")))
+                .doOnNext(order -> order.setDuplicate(true))
+                .collectMap(Order::getOrderId);
+    }
+
+    private List<OrderBatchWriter.InsertResult> batchResults(List<CreateOrderRequest> requests,
+                                                             Map<String, OrderIdFilter.Result> seen,
+                                                             Map<String, Order> existing,
+                                                             Map<String, OrderBatchWriter.InsertResult> inserted) {
+        existing.keySet().forEach(orderIdFilter::existing);
+        inserted.values().forEach(result -> {
+            if (result.getError() != null) {
+                return;
+            }
+            String orderId = result.getOrder().getOrderId();
+            if (result.getOrder().isDuplicate()) {
+                orderIdFilter.existing(orderId);
+            } else {
+                orderIdFilter.created(orderId, seen.get(orderId));
+                ordersCreatedCounter.increment();
+            }
+        });
+
+        List<OrderBatchWriter.InsertResult> results = new ArrayList<>(requests.size());
+        Set<String> answered = new HashSet<>();
+        for (CreateOrderRequest request : requests) {
+            String orderId = request.getOrderId();
+            OrderBatchWriter.InsertResult result = existing.containsKey(orderId)
+                    ? new OrderBatchWriter.InsertResult(existing.get(orderId), null)
+                    : inserted.get(orderId);
+            if (!answered.add(orderId) && result.getError() == null && !result.getOrder().isDuplicate()) {
+                // Repeated within the batch: the first occurrence created it
+                result = new OrderBatchWriter.InsertResult(duplicateOf(result.getOrder()), null);
+            }
+            if (result.getError() == null && result.getOrder().isDuplicate()) {
+                ordersDuplicateCounter.increment();
+            }
+            results.add(result);
+        }
+        return results;
+    }
+
+    private static Order duplicateOf(Order order) {
+        Order duplicate = new Order(order.getOrderId(), order.getCustomerId(), order.getCustomerPhoneNumber(), null, order.getStatus());
+        duplicate.setId(order.getId());
+        duplicate.setTs(order.getTs());
+        duplicate.setDuplicate(true);
+        return duplicate;
+    }
+
+    private Mono<Order> findExistingOrder(String orderId) {
+        return Mono.defer(() -> {
+            long startedAt = System.nanoTime();
+            return readOrder(orderId)
+                    .doOnNext(existingOrder -> {
+                        orderStageTimers.recordLookup(startedAt);
+                        orderIdFilter.existing(orderId);
+                        existingOrder.setDuplicate(true);
+                        log.debug("Order with orderId '{}' already exists. Returning existing order with status: {}", 
+                                orderId, existingOrder.getStatus());
+                        ordersDuplicateCounter.increment();
+                    });
+        });
+    }
+
+    /**
+     * findByOrderId decoded by OrderCodec instead of the MappingMongoConverter
+     */
+    private Mono<Order> readOrder(String orderId) {
+        return reactiveMongoTemplate.execute(Order.class, collection -> collection.withDocumentClass(Order.class)
+                        .withCodecRegistry(ORDER_CODECS)
+                        .find(Filters.eq("orderId", orderId))
+                        .first())
+                .next();
+    }
+
+    /**
+     * Moves the order to newStatus with a single updateOne, without loading the document.
+     * When expectedStatus is not null the update only applies if the order is still in that
+     * status. Emits the new status, or completes empty if the order does not exist or the
+     * transition did not apply.
+     */
+    public Mono<String> updateStatus(String orderId, String expectedStatus, String newStatus) {
+        Criteria criteria = Criteria.where("orderId").is(orderId);
+        if (expectedStatus != null) {
+            criteria = criteria.and("status").is(expectedStatus);
+        }
+        Update update = new Update()
+                .set("status", newStatus)
+                .set("ts", OffsetDateTime.now());
+
+        return reactiveMongoTemplate.updateFirst(Query.query(criteria), update, Order.class)
+                .filter(result -> result.getMatchedCount() > 0)
+                .doOnNext(result -> orderCache.invalidate(orderId))
+                .map(result -> newStatus);
+    }
+
+    /**
+     * Served from OrderCache; only misses reach Mongo
+     */
     public Mono<Order> findOrderByOrderId(String orderId) {
-        return orderRepository.findByOrderId(orderId);
+        return orderCache.get(orderId, this::readOrder);
     }
     
     public Mono<Order> findOrderById(String id) {
@@ -66,9 +288,134 @@ public class OrderService {
     
     public Mono<Long> countOrdersByDateRange(OffsetDateTime startDate, OffsetDateTime endDate) {
         log.info("Counting orders between {} and {}", startDate, endDate);
-        return orderRepository.countByTsBetween(startDate, endDate)
+        return orderCountRollup.count(startDate, endDate)
                 .doOnSuccess(count -> 
                     log.info("Found {} orders in the specified date range", count)
                 );
     }
+
+    /**
+     * One page of orders sorted by (ts, _id). The cursor is the nextCursor of the previous page,
+     * so every page is a single index range scan no matter how deep the listing goes.
+     * Throws IllegalArgumentException for a malformed cursor.
+     */
+    public Mono<OrderPage<Order>> listOrders(OrderFilter filter, String cursor, int limit) {
+        Query query = Query.query(filterCriteria(filter, cursor))
+                .with(KEYSET_SORT)
+                .limit(limit + 1);
+        return reactiveMongoTemplate.find(query, Order.class)
+                .collectList()
+                .map(orders -> {
+                    if (orders.size() <= limit) {
+                        return new OrderPage<>(orders, null);
+                    }
+                    List<Order> page = orders.subList(0, limit);
+                    Order last = page.get(limit - 1);
+                    return new OrderPage<>(page, encodeCursor(last.getTs(), last.getId()));
+                });
+    }
+
+    /**
+     * A customer's orders newest first, optionally only those with ts >= since. Only the
+     * OrderSummary fields are read, all of them from the customerId_ts_id_summary index,
+     * so the query never loads the order documents.
+     */
+    public Mono<OrderPage<OrderSummary>> findCustomerOrders(String customerId, OffsetDateTime since, String cursor, int limit) {
+        Criteria criteria = Criteria.where("customerId").is(customerId);
+        if (since != null) {
+            criteria = criteria.and("ts").gte(since);
+        }
+        if (cursor != null) {
+            criteria = new Criteria().andOperator(criteria, afterCursor(cursor, false));
+        }
+        Query query = Query.query(criteria)
+                .with(NEWEST_FIRST)
+                .limit(limit + 1);
+        query.fields().include(OrderSummary.FIELDS);
+
+        return reactiveMongoTemplate.find(query, OrderSummary.class, reactiveMongoTemplate.getCollectionName(Order.class))
+                .collectList()
+                .map(orders -> {
+                    if (orders.size() <= limit) {
+                        return new OrderPage<>(orders, null);
+                    }
+                    List<OrderSummary> page = orders.subList(0, limit);
+                    OrderSummary last = page.get(limit - 1);
+                    return new OrderPage<>(page, encodeCursor(last.getTs(), last.getId()));
+                });
+    }
+
+    /**
+     * Streams every matching order in (ts, _id) order. Documents are pulled from the Mongo
+     * cursor only as fast as the subscriber requests them.
+     */
+    public Flux<Order> exportOrders(OrderFilter filter) {
+        Query query = Query.query(filterCriteria(filter, null))
+                .with(KEYSET_SORT)
+                .cursorBatchSize(orderProperties.getExportBatchSize());
+        return reactiveMongoTemplate.find(query, Order.class);
+    }
+
+    private Criteria filterCriteria(OrderFilter filter, String cursor) {
+        List<Criteria> clauses = new ArrayList<>();
+        if (filter.getStatus() != null) {
+            clauses.add(Criteria.where("status").is(filter.getStatus()));
+        }
+        if (filter.getCustomerId() != null) {
+            clauses.add(Criteria.where("customerId").is(filter.getCustomerId()));
+        }
+        if (filter.getFrom() != null || filter.getTo() != null) {
+            Criteria ts = Criteria.where("ts");
+            if (filter.getFrom() != null) {
+                ts = ts.gte(filter.getFrom());
+            }
+            if (filter.getTo() != null) {
+                ts = ts.lt(filter.getTo());
+            }
+            clauses.add(ts);
+        }
+        if (cursor != null) {
+            clauses.add(afterCursor(cursor, true));
+        }
+        return clauses.isEmpty() ? new Criteria() : new Criteria().andOperator(clauses.toArray(new Criteria[0]));
+    }
+
+    private static String encodeCursor(OffsetDateTime ts, String id) {
+        String position = ts.toInstant().toEpochMilli() + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * (ts, _id) strictly after the position encoded in the cursor, in ascending or descending order
+     */
+    private static Criteria afterCursor(String cursor, boolean ascending) {
+        String position;
+        try {
+            position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        int separator = position.indexOf(':');
+        if (separator <= 0) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+
+        Instant ts;
+        try {
+            ts = Instant.ofEpochMilli(Long.parseLong(position.substring(0, separator)));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        String id = position.substring(separator + 1);
+        Object lastId = ObjectId.isValid(id) ? new ObjectId(id) : id;
+
+        if (ascending) {
+            return new Criteria().orOperator(
+                    Criteria.where("ts").gt(ts),
+                    Criteria.where("ts").is(ts).and("_id").gt(lastId));
+        }
+        return new Criteria().orOperator(
+                Criteria.where("ts").lt(ts),
+                Criteria.where("ts").is(ts).and("_id").lt(lastId));
+    }
 }
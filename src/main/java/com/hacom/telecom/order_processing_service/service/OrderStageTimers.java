@@ -0,0 +1,124 @@
+package com.hacom.telecom.order_processing_service.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency timers for each stage of the order lifecycle, with publishable percentile histograms.
+ *
+ * Every timer/outcome combination is registered once at startup, and callers pass System.nanoTime()
+ * start marks, so recording on the hot path does not allocate.
+ */
+@Component
+public class OrderStageTimers {
+
+    public static final String CREATED = "created";
+    public static final String DUPLICATE = "duplicate";
+    public static final String ERROR = "error";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Timer ingestWait;
+    private Timer persistCreated;
+    private Timer persistDuplicate;
+    private Timer persistError;
+    private Timer lookup;
+    private Timer statusUpdated;
+    private Timer statusUnchanged;
+    private Timer statusError;
+    private Timer lifecycleCreated;
+    private Timer lifecycleDuplicate;
+    private Timer lifecycleError;
+    private Timer smsSubmitSent;
+    private Timer smsSubmitThrottled;
+    private Timer smsSubmitFailed;
+
+    @PostConstruct
+    public void init() {
+        ingestWait = stage("ingest_wait", "none", "Time an admitted order waited in the pipeline ingest buffer");
+        persistCreated = stage("persist", CREATED, "Mongo insert of a new order");
+        persistDuplicate = stage("persist", DUPLICATE, "Mongo insert of a new order");
+        persistError = stage("persist", ERROR, "Mongo insert of a new order");
+        lookup = stage("lookup", DUPLICATE, "findByOrderId of an order that already existed");
+        statusUpdated = stage("status_update", "updated", "Conditional PENDING -> PROCESSING update");
+        statusUnchanged = stage("status_update", "unchanged", "Conditional PENDING -> PROCESSING update");
+        statusError = stage("status_update", ERROR, "Conditional PENDING -> PROCESSING update");
+
+        lifecycleCreated = lifecycle(CREATED);
+        lifecycleDuplicate = lifecycle(DUPLICATE);
+        lifecycleError = lifecycle(ERROR);
+
+        smsSubmitSent = smsSubmit("sent");
+        smsSubmitThrottled = smsSubmit("throttled");
+        smsSubmitFailed = smsSubmit("failed");
+    }
+
+    public void recordIngestWait(long enqueuedAt) {
+        record(ingestWait, enqueuedAt);
+    }
+
+    public void recordPersist(long startedAt, String outcome) {
+        record(DUPLICATE.equals(outcome) ? persistDuplicate : ERROR.equals(outcome) ? persistError : persistCreated, startedAt);
+    }
+
+    public void recordLookup(long startedAt) {
+        record(lookup, startedAt);
+    }
+
+    public void recordStatusUpdate(long startedAt, boolean updated, boolean failed) {
+        record(failed ? statusError : updated ? statusUpdated : statusUnchanged, startedAt);
+    }
+
+    /**
+     * From admission in OrderPipeline until the response was handed to gRPC
+     */
+    public void recordLifecycle(long enqueuedAt, String outcome) {
+        record(DUPLICATE.equals(outcome) ? lifecycleDuplicate : ERROR.equals(outcome) ? lifecycleError : lifecycleCreated, enqueuedAt);
+    }
+
+    /**
+     * From SubmitSm write until the SubmitSmResp (or failure) was received
+     */
+    public void recordSmsSubmit(long startedAt, boolean sent, boolean throttled) {
+        record(throttled ? smsSubmitThrottled : sent ? smsSubmitSent : smsSubmitFailed, startedAt);
+    }
+
+    private static void record(Timer timer, long startedAt) {
+        timer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer stage(String stage, String outcome, String description) {
+        return histogram(Timer.builder("orders.stage.duration"), description)
+                .tag("stage", stage)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private Timer lifecycle(String outcome) {
+        return histogram(Timer.builder("orders.lifecycle.duration"), "Time from gRPC receipt to the CreateOrder response")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private Timer smsSubmit(String outcome) {
+        return histogram(Timer.builder("sms.submit.duration"), "SubmitSm round trip to the SMSC")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private static Timer.Builder histogram(Timer.Builder builder, String description) {
+        return builder
+                .description(description)
+                .tag("service", "order-processing")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(50_000))
+                .maximumExpectedValue(Duration.ofSeconds(30));
+    }
+}
@@ -0,0 +1,43 @@
+package com.hacom.telecom.order_processing_service.service;
+
+import com.hacom.telecom.order_processing_service.config.OrderProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One key=value line per finished order on the "order.summary" logger, replacing the
+ * per-stage INFO lines. Successful orders are sampled (orders.summarySampleRate);
+ * failed orders are always logged, at ERROR, with the failure reason.
+ */
+@Component
+public class OrderSummaryLogger {
+
+    private static final Logger log = LoggerFactory.getLogger("order.summary");
+
+    @Autowired
+    private OrderProperties orderProperties;
+
+    public void completed(String orderId, String outcome, String status, long enqueuedAt) {
+        double sampleRate = orderProperties.getSummarySampleRate();
+        if (!log.isInfoEnabled() || sampleRate <= 0
+                || (sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate)) {
+            return;
+        }
+        log.info("order_summary orderId={} outcome={} status={} latencyMicros={}",
+                orderId, outcome, status, elapsedMicros(enqueuedAt));
+    }
+
+    public void failed(String orderId, long enqueuedAt, String errorMessage) {
+        log.error("order_summary orderId={} outcome={} status=ERROR latencyMicros={} error=\"{}\"",
+                orderId, OrderStageTimers.ERROR, elapsedMicros(enqueuedAt), errorMessage);
+    }
+
+    private static long elapsedMicros(long enqueuedAt) {
+        return TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - enqueuedAt);
+    }
+}
@@ -0,0 +1,160 @@
+package com.hacom.telecom.order_processing_service.service;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A queued order packed into one flat buffer, built by OrderPacker at admission and decoded
+ * only when OrderCodec writes the insert document.
+ *
+ * Layout (big endian):
+ * <pre>
+ * customerId: string, customerPhone: string, itemCount: int,
+ * items: itemId: ref, productName: ref, quantity: int, priceKind: byte, price: long
+ * </pre>
+ * A string is an int byte length followed by its UTF-8 bytes. A ref is an index into the
+ * OrderPacker dictionary the order was packed with, or -1 followed by an inline string once that
+ * dictionary is full.
+ * The price is in integer cents when that is exact (PRICE_CENTS), otherwise the raw double bits.
+ *
+ * The buffer is either a heap array or a chunk of an off-heap slab that goes back to the pool on
+ * release(). Only the orderId (needed by every stage) and, after release, the phone number
+ * (needed by notify) stay on the heap as Strings.
+ */
+public class PackedOrder {
+
+    static final byte PRICE_CENTS = 0;
+    static final byte PRICE_DOUBLE = 1;
+    static final int INLINE = -1;
+
+    /**
+     * Receives the items in order; the Strings come from the dictionary or are decoded on the spot
+     */
+    public interface ItemVisitor {
+        void item(String itemId, String productName, int quantity, double price);
+    }
+
+    private final String orderId;
+    private final OrderPacker packer;
+    private OrderPacker.Dictionary dictionary;
+    private final int size;
+    private final boolean offHeap;
+    private ByteBuffer buffer;
+    private String customerPhone;
+
+    PackedOrder(String orderId, ByteBuffer buffer, int size, boolean offHeap, OrderPacker packer,
+                OrderPacker.Dictionary dictionary) {
+        this.orderId = orderId;
+        this.buffer = buffer;
+        this.size = size;
+        this.offHeap = offHeap;
+        this.packer = packer;
+        this.dictionary = dictionary;
+    }
+
+    public String getOrderId() {
+        return orderId;
+    }
+
+    public synchronized String getCustomerId() {
+        return readString(buffer(), 0);
+    }
+
+    public synchronized String getCustomerPhone() {
+        if (customerPhone != null) {
+            return customerPhone;
+        }
+        ByteBuffer packed = buffer();
+        return readString(packed, stringEnd(packed, 0));
+    }
+
+    public synchronized int getItemCount() {
+        ByteBuffer packed = buffer();
+        return packed.getInt(stringEnd(packed, stringEnd(packed, 0)));
+    }
+
+    public synchronized void forEachItem(ItemVisitor visitor) {
+        ByteBuffer packed = buffer();
+        int position = stringEnd(packed, stringEnd(packed, 0));
+        int itemCount = packed.getInt(position);
+        position += 4;
+        for (int i = 0; i < itemCount; i++) {
+            String itemId;
+            int ref = packed.getInt(position);
+            position += 4;
+            if (ref == INLINE) {
+                itemId = readString(packed, position);
+                position = stringEnd(packed, position);
+            } else {
+                itemId = dictionary.lookup(ref);
+            }
+
+            String productName;
+            ref = packed.getInt(position);
+            position += 4;
+            if (ref == INLINE) {
+                productName = readString(packed, position);
+                position = stringEnd(packed, position);
+            } else {
+                productName = dictionary.lookup(ref);
+            }
+
+            int quantity = packed.getInt(position);
+            byte priceKind = packed.get(position + 4);
+            long price = packed.getLong(position + 5);
+            position += 13;
+            visitor.item(itemId, productName, quantity,
+                    priceKind == PRICE_CENTS ? price / 100.0 : Double.longBitsToDouble(price));
+        }
+    }
+
+    /**
+     * Bytes held by the packed form, on or off the heap
+     */
+    public int getSizeInBytes() {
+        return size;
+    }
+
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+
+    /**
+     * Gives the buffer back once the insert document has been written. The phone number is kept
+     * for the notify stage; every other field, and the hold on the packer dictionary, is gone
+     * afterwards. Safe to call more than once.
+     */
+    public synchronized void release() {
+        if (buffer == null) {
+            return;
+        }
+        customerPhone = getCustomerPhone();
+        ByteBuffer released = buffer;
+        buffer = null;
+        dictionary = null;
+        if (offHeap) {
+            packer.free(released);
+        }
+    }
+
+    private ByteBuffer buffer() {
+        if (buffer == null) {
+            throw new IllegalStateException("Order " + orderId + " was already released");
+        }
+        return buffer;
+    }
+
+    static int stringEnd(ByteBuffer packed, int position) {
+        return position + 4 + packed.getInt(position);
+    }
+
+    static String readString(ByteBuffer packed, int position) {
+        int length = packed.getInt(position);
+        if (packed.hasArray()) {
+            return new String(packed.array(), packed.arrayOffset() + position + 4, length, StandardCharsets.UTF_8);
+        }
+        byte[] bytes = new byte[length];
+        packed.get(position + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -1,11 +1,9 @@
 package com.hacom.telecom.order_processing_service.service;
 
 import com.cloudhopper.commons.charset.CharsetUtil;
-import com.cloudhopper.smpp.SmppBindType;
+import com.cloudhopper.smpp.SmppConstants;
 import com.cloudhopper.smpp.SmppSession;
-import com.cloudhopper.smpp.SmppSessionConfiguration;
-import com.cloudhopper.smpp.impl.DefaultSmppClient;
-import com.cloudhopper.smpp.impl.DefaultSmppSessionHandler;
+import com.cloudhopper.smpp.pdu.PduResponse;
 import com.cloudhopper.smpp.pdu.SubmitSm;
 import com.cloudhopper.smpp.pdu.SubmitSmResp;
 import com.cloudhopper.smpp.type.Address;
@@ -14,6 +12,8 @@ import com.cloudhopper.smpp.type.SmppTimeoutException;
 import com.cloudhopper.smpp.type.UnrecoverablePduException;
 import com.hacom.telecom.order_processing_service.config.SmppProperties;
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -21,6 +21,16 @@ import org.springframework.stereotype.Service;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Service
 public class SmppClientService {
@@ -36,8 +46,22 @@ public class SmppClientService {
     @Autowired
     private Counter smsFailedCounter;
 
-    private DefaultSmppClient smppClient;
-    private SmppSession session;
+    @Autowired
+    private Counter smsThrottledCounter;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private SmppSessionPool smppSessionPool;
+
+    @Autowired
+    private OrderStageTimers orderStageTimers;
+
+    private ExecutorService submitExecutor;
+    private ScheduledExecutorService dispatcher;
+    private BlockingDeque<PendingSms> queue;
+    private TokenBucket globalTokenBucket;
 
     @PostConstruct
     public void init() {
@@ -46,58 +70,117 @@ public class SmppClientService {
             return;
         }
 
-        try {
-            smppClient = new DefaultSmppClient();
-            log.info("SMPP client created successfully");
+        submitExecutor = BlockingExecutors.create("smpp-submit", smppProperties.getThreadMode(),
+                smppProperties.getSubmitThreads());
 
-            connectToSmppServer();
-        } catch (Exception e) {
-            log.warn("Could not initialize SMPP client: {}. SMS sending will be disabled.", e.getMessage());
+        queue = new LinkedBlockingDeque<>(smppProperties.getQueueCapacity());
+        globalTokenBucket = new TokenBucket(smppProperties.getGlobalTps(), smppProperties.getBurstSize(),
+                smppProperties.getThrottleRecoveryMillis());
+
+        Gauge.builder("sms.queue.depth", queue, BlockingDeque::size)
+                .description("Number of SMS waiting for a TPS token or a bound SMPP session")
+                .tag("service", "order-processing")
+                .register(meterRegistry);
+
+        dispatcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "smpp-dispatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dispatcher.scheduleWithFixedDelay(this::dispatch, smppProperties.getDispatchInterval(),
+                smppProperties.getDispatchInterval(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queues an SMS message for delivery via SMPP without blocking the caller.
+     * The returned stage completes with true once the SMSC accepts the message.
+     */
+    public CompletionStage<Boolean> sendSms(String destinationNumber, String message) {
+        if (!smppProperties.isEnabled()) {
+            log.info("SMPP is disabled. SMS not sent to {}: {}", destinationNumber, message);
+            return CompletableFuture.completedFuture(false);
         }
+
+        PendingSms pending = new PendingSms(destinationNumber, message, smppProperties.getDeliveryTimeout());
+        if (!queue.offerLast(pending)) {
+            log.error("SMS queue is full ({} messages). SMS to {} not sent", smppProperties.getQueueCapacity(), destinationNumber);
+            smsFailedCounter.increment();
+            return CompletableFuture.completedFuture(false);
+        }
+        return pending.result;
     }
 
-    private void connectToSmppServer() {
+    /**
+     * Hands queued messages to the sessions as long as the global and per-session token buckets
+     * allow it and some session has room in its window; runs on the dispatcher thread only.
+     * At most smpp.windowSize submits per session leave the queue, so everything else waits in
+     * the bounded queue, where queueCapacity and the submit timeout apply to it.
+     */
+    private void dispatch() {
         try {
-            SmppSessionConfiguration config = new SmppSessionConfiguration();
-            config.setWindowSize(smppProperties.getWindowSize());
-            config.setName("OrderProcessingSession");
-            config.setType(SmppBindType.TRANSCEIVER);
-            config.setHost(smppProperties.getHost());
-            config.setPort(smppProperties.getPort());
-            config.setConnectTimeout(smppProperties.getConnectTimeout());
-            config.setSystemId(smppProperties.getSystemId());
-            config.setPassword(smppProperties.getPassword());
-            config.setSystemType(smppProperties.getSystemType());
-            config.setRequestExpiryTimeout(smppProperties.getRequestExpiryTimeout());
-            config.setWindowMonitorInterval(smppProperties.getWindowMonitorInterval());
-
-            session = smppClient.bind(config, new DefaultSmppSessionHandler());
-            log.info("SMPP session bound successfully to {}:{}", smppProperties.getHost(), smppProperties.getPort());
+            expireStaleMessages();
+
+            while (!queue.isEmpty()) {
+                if (!globalTokenBucket.tryAcquire()) {
+                    return;
+                }
+                SmppSessionPool.PooledSession pooledSession = smppSessionPool.acquire();
+                if (pooledSession == null) {
+                    // Every session is at its rate limit or has a full window
+                    globalTokenBucket.refund();
+                    return;
+                }
+                PendingSms pending = queue.pollFirst();
+                if (pending == null) {
+                    // Nothing to send after all: give both tokens and the window slot back
+                    globalTokenBucket.refund();
+                    pooledSession.refund();
+                    return;
+                }
+                // sendRequestPdu may wait for a free window slot, so keep it off the dispatcher thread
+                submitExecutor.execute(() -> submit(pending, pooledSession));
+            }
         } catch (Exception e) {
-            log.warn("Could not bind SMPP session: {}. Will operate without SMS capability.", e.getMessage());
-            session = null;
+            log.error("Error dispatching queued SMS: {}", e.getMessage());
         }
     }
 
     /**
-     * Sends an SMS message via SMPP
+     * Fails messages queued for longer than submitTimeout since they were first queued, throttle
+     * requeues included, or past their delivery deadline
      */
-    public boolean sendSms(String destinationNumber, String message) {
-        if (!smppProperties.isEnabled()) {
-            log.info("SMPP is disabled. SMS not sent to {}: {}", destinationNumber, message);
-            return false;
+    private void expireStaleMessages() {
+        long now = System.currentTimeMillis();
+        for (PendingSms pending : queue) {
+            boolean stale = now - pending.queuedAt > smppProperties.getSubmitTimeout() || now >= pending.deadline;
+            if (stale && queue.remove(pending)) {
+                pending.result.complete(handleSubmitResult(pending.destinationNumber, null,
+                        new SmppTimeoutException("No SMPP session available within submit timeout")));
+            }
+        }
+    }
+
+    private void submit(PendingSms pending, SmppSessionPool.PooledSession pooledSession) {
+        SmppSession currentSession = pooledSession.getSession();
+        if (currentSession == null) {
+            // Session dropped since acquire(): nothing was sent, so the tokens and the slot go back too
+            globalTokenBucket.refund();
+            pooledSession.refund();
+            requeue(pending);
+            return;
         }
 
-        if (session == null || !session.isBound()) {
-            log.warn("SMPP session is not bound. Attempting to reconnect...");
-            connectToSmppServer();
-            
-            if (session == null || !session.isBound()) {
-                log.error("Cannot send SMS, SMPP session is not available");
-                return false;
-            }
+        long remaining = pending.deadline - System.currentTimeMillis();
+        if (remaining <= 0) {
+            globalTokenBucket.refund();
+            pooledSession.refund();
+            pending.result.complete(handleSubmitResult(pending.destinationNumber, null,
+                    new SmppTimeoutException("SMS delivery timeout reached before submit")));
+            return;
         }
 
+        CompletableFuture<PduResponse> response = new CompletableFuture<>();
+        long startedAt = System.nanoTime();
         try {
             SubmitSm submit = new SubmitSm();
 
@@ -110,38 +193,82 @@ public class SmppClientService {
             submit.setDestAddress(new Address(
                     (byte) smppProperties.getDestAddressTon(),
                     (byte) smppProperties.getDestAddressNpi(),
-                    destinationNumber
+                    pending.destinationNumber
             ));
 
-            submit.setShortMessage(CharsetUtil.encode(message, CharsetUtil.CHARSET_GSM));
+            submit.setShortMessage(CharsetUtil.encode(pending.message, CharsetUtil.CHARSET_GSM));
+            submit.setReferenceObject(response);
 
-            SubmitSmResp submitResp = session.submit(submit, 10000);
+            // Asynchronous send: the SubmitSmResp is delivered through the pool's session handler
+            currentSession.sendRequestPdu(submit, Math.min(smppProperties.getSubmitTimeout(), remaining), false);
+            pooledSession.recordSubmit();
 
-            if (submitResp.getCommandStatus() == 0) {
-                log.info("SMS sent successfully to {}. Message ID: {}", destinationNumber, submitResp.getMessageId());
-                smsSentCounter.increment();
-                return true;
-            } else {
-                log.error("SMS send failed with status: {}", submitResp.getCommandStatus());
-                smsFailedCounter.increment();
-                return false;
+        } catch (SmppChannelException e) {
+            pooledSession.markUnhealthy(currentSession, e.getMessage());
+            response.completeExceptionally(e);
+        } catch (Exception e) {
+            response.completeExceptionally(e);
+        }
+
+        response
+                // Safety net: futures cancelled by a closing session never reach the handler. Also caps the
+                // whole delivery at smpp.deliveryTimeout, so the outbox lease never runs out under a slow send.
+                .orTimeout(Math.max(1, pending.deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS)
+                .whenComplete((submitResp, error) -> onSubmitResult(pending, pooledSession, startedAt, submitResp, error));
+    }
+
+    private void onSubmitResult(PendingSms pending, SmppSessionPool.PooledSession pooledSession, long startedAt,
+                                PduResponse submitResp, Throwable error) {
+        pooledSession.release();
+        boolean throttled = error == null && submitResp.getCommandStatus() == SmppConstants.STATUS_THROTTLED;
+        orderStageTimers.recordSmsSubmit(startedAt, error == null && submitResp.getCommandStatus() == 0, throttled);
+        if (throttled) {
+            smsThrottledCounter.increment();
+            pooledSession.recordThrottled();
+            if (++pending.throttledAttempts <= smppProperties.getMaxThrottleRetries()) {
+                log.warn("SMSC throttled SMS to {} on session {}. Requeueing (attempt {})",
+                        pending.destinationNumber, pooledSession.getName(), pending.throttledAttempts);
+                requeue(pending);
+                return;
             }
+        }
+        pending.result.complete(handleSubmitResult(pending.destinationNumber, submitResp, error));
+    }
 
-        } catch (SmppTimeoutException e) {
-            log.error("SMS send timeout for {}: {}", destinationNumber, e.getMessage());
-            smsFailedCounter.increment();
-            return false;
-        } catch (SmppChannelException e) {
-            log.error("SMPP channel error for {}: {}", destinationNumber, e.getMessage());
-            session = null;
-            smsFailedCounter.increment();
-            return false;
-        } catch (UnrecoverablePduException e) {
-            log.error("Unrecoverable PDU error for {}: {}", destinationNumber, e.getMessage());
+    /**
+     * Puts the message back at the head of the queue; queuedAt is kept, so throttle retries do not
+     * extend its submit timeout
+     */
+    private void requeue(PendingSms pending) {
+        if (!queue.offerFirst(pending)) {
+            pending.result.complete(handleSubmitResult(pending.destinationNumber, null,
+                    new IllegalStateException("SMS queue is full")));
+        }
+    }
+
+    private boolean handleSubmitResult(String destinationNumber, PduResponse submitResp, Throwable error) {
+        if (error != null) {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof SmppTimeoutException || cause instanceof TimeoutException) {
+                log.error("SMS send timeout for {}: {}", destinationNumber, cause.getMessage());
+            } else if (cause instanceof SmppChannelException) {
+                log.error("SMPP channel error for {}: {}", destinationNumber, cause.getMessage());
+            } else if (cause instanceof UnrecoverablePduException) {
+                log.error("Unrecoverable PDU error for {}: {}", destinationNumber, cause.getMessage());
+            } else {
+                log.error("Error sending SMS to {}: {}", destinationNumber, cause.getMessage());
+            }
             smsFailedCounter.increment();
             return false;
-        } catch (Exception e) {
-            log.error("Error sending SMS to {}: {}", destinationNumber, e.getMessage());
+        }
+
+        if (submitResp.getCommandStatus() == 0) {
+            log.debug("SMS sent successfully to {}. Message ID: {}", destinationNumber,
+                    submitResp instanceof SubmitSmResp ? ((SubmitSmResp) submitResp).getMessageId() : null);
+            smsSentCounter.increment();
+            return true;
+        } else {
+            log.error("SMS send failed with status: {}", submitResp.getCommandStatus());
             smsFailedCounter.increment();
             return false;
         }
@@ -150,30 +277,46 @@ public class SmppClientService {
     /**
      * Sends an order processed notification SMS
      */
-    public void sendOrderProcessedNotification(String orderId, String phoneNumber) {
+    public CompletionStage<Boolean> sendOrderProcessedNotification(String orderId, String phoneNumber) {
         String message = "Your order " + orderId + " has been processed";
-        log.info("Sending order notification SMS to {}: {}", phoneNumber, message);
+        log.debug("Sending order notification SMS to {}: {}", phoneNumber, message);
         
-        boolean sent = sendSms(phoneNumber, message);
-        
-        if (sent) {
-            log.info("Order notification SMS sent successfully for order {}", orderId);
-        } else {
-            log.warn("Order notification SMS could not be sent for order {}", orderId);
+        return sendSms(phoneNumber, message)
+                .whenComplete((sent, error) -> {
+                    if (Boolean.TRUE.equals(sent)) {
+                        log.debug("Order notification SMS sent successfully for order {}", orderId);
+                    } else {
+                        log.warn("Order notification SMS could not be sent for order {}", orderId);
+                    }
+                });
+    }
+
+    /**
+     * SMS waiting in the queue for a token, with its caller-facing result
+     */
+    private static class PendingSms {
+        private final String destinationNumber;
+        private final String message;
+        private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+        private final long queuedAt = System.currentTimeMillis();
+        // Latest time the caller gets its result: queuedAt + smpp.deliveryTimeout
+        private final long deadline;
+        private int throttledAttempts;
+
+        PendingSms(String destinationNumber, String message, long deliveryTimeout) {
+            this.destinationNumber = destinationNumber;
+            this.message = message;
+            this.deadline = queuedAt + deliveryTimeout;
         }
     }
 
     @PreDestroy
     public void destroy() {
-        if (session != null && session.isBound()) {
-            log.info("Closing SMPP session...");
-            session.close();
-            session.destroy();
+        if (dispatcher != null) {
+            dispatcher.shutdown();
         }
-        
-        if (smppClient != null) {
-            log.info("Destroying SMPP client...");
-            smppClient.destroy();
+        if (submitExecutor != null) {
+            submitExecutor.shutdown();
         }
     }
 }
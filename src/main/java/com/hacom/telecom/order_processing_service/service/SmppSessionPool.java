@@ -0,0 +1,421 @@
+package com.hacom.telecom.order_processing_service.service;
+
+import com.cloudhopper.smpp.PduAsyncResponse;
+import com.cloudhopper.smpp.SmppBindType;
+import com.cloudhopper.smpp.SmppSession;
+import com.cloudhopper.smpp.SmppSessionConfiguration;
+import com.cloudhopper.smpp.impl.DefaultSmppClient;
+import com.cloudhopper.smpp.impl.DefaultSmppSessionHandler;
+import com.cloudhopper.smpp.pdu.EnquireLink;
+import com.cloudhopper.smpp.pdu.PduRequest;
+import com.cloudhopper.smpp.pdu.PduResponse;
+import com.cloudhopper.smpp.type.SmppChannelException;
+import com.cloudhopper.smpp.type.SmppTimeoutException;
+import com.hacom.telecom.order_processing_service.config.SmppProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of bound TRANSCEIVER sessions, possibly spread over several SMSC hosts.
+ * Sessions are bound, kept alive with EnquireLink and rebound with backoff in the background.
+ */
+@Component
+public class SmppSessionPool {
+
+    private static final Logger log = LoggerFactory.getLogger(SmppSessionPool.class);
+
+    @Autowired
+    private SmppProperties smppProperties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private DefaultSmppClient smppClient;
+    private ScheduledExecutorService scheduler;
+    private ExecutorService blockingExecutor;
+    private List<PooledSession> sessions = List.of();
+    private volatile boolean closed;
+
+    @PostConstruct
+    public void init() {
+        if (!smppProperties.isEnabled()) {
+            return;
+        }
+
+        smppClient = new DefaultSmppClient();
+
+        List<PooledSession> pooled = new ArrayList<>();
+        for (String endpoint : smppProperties.resolveHosts()) {
+            for (int index = 0; index < smppProperties.getSessionsPerHost(); index++) {
+                pooled.add(new PooledSession(endpoint, index));
+            }
+        }
+        sessions = List.copyOf(pooled);
+
+        // The scheduler only fires timers; binds and EnquireLinks block, so they run on blockingExecutor
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "smpp-pool-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        blockingExecutor = BlockingExecutors.create("smpp-pool", smppProperties.getThreadMode(), sessions.size());
+
+        // Bind in the background so an unreachable SMSC does not delay startup
+        sessions.forEach(pooledSession -> blockingExecutor.execute(pooledSession::bind));
+
+        long interval = smppProperties.getEnquireLinkInterval();
+        if (interval > 0) {
+            scheduler.scheduleWithFixedDelay(this::sendEnquireLinks, interval, interval, TimeUnit.MILLISECONDS);
+        }
+
+        log.info("SMPP session pool created with {} sessions ({} threads for blocking calls)",
+                sessions.size(), smppProperties.getThreadMode());
+    }
+
+    /**
+     * Returns the bound session with the fewest submits in flight that still has room in its
+     * window and a TPS token, taking the token and a window slot; null if no session has both.
+     * In flight counts every submit handed off by acquire() and not yet completed, so it also
+     * covers submits still waiting to be written. The caller gives both back with refund() when
+     * nothing is sent, or the slot with release() once the submit has completed.
+     */
+    public PooledSession acquire() {
+        PooledSession best = null;
+        int bestLoad = Integer.MAX_VALUE;
+        for (PooledSession pooledSession : sessions) {
+            if (!pooledSession.isBound() || !pooledSession.tokenBucket.hasToken()) {
+                continue;
+            }
+            int load = pooledSession.inFlight.get();
+            if (load < smppProperties.getWindowSize() && load < bestLoad) {
+                best = pooledSession;
+                bestLoad = load;
+            }
+        }
+        if (best == null || !best.tokenBucket.tryAcquire()) {
+            return null;
+        }
+        best.inFlight.incrementAndGet();
+        return best;
+    }
+
+    public boolean hasBoundSession() {
+        for (PooledSession pooledSession : sessions) {
+            if (pooledSession.isBound()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public List<PooledSession> getSessions() {
+        return sessions;
+    }
+
+    private void sendEnquireLinks() {
+        for (PooledSession pooledSession : sessions) {
+            if (pooledSession.isBound()) {
+                // sendRequestPdu waits for a window slot when the session is busy
+                blockingExecutor.execute(pooledSession::enquireLink);
+            }
+        }
+    }
+
+    /**
+     * One pooled SMPP session with its own rebind backoff and metrics
+     */
+    public class PooledSession {
+
+        private final String name;
+        private final String host;
+        private final int port;
+        private final Counter submittedCounter;
+        private final Counter rebindCounter;
+        private final TokenBucket tokenBucket;
+        private final AtomicBoolean rebindPending = new AtomicBoolean();
+        // Submits taken by acquire() and not yet completed; bounded by smpp.windowSize
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private volatile SmppSession session;
+        // When the SMSC last answered a request on this session, in epoch millis
+        private volatile long lastResponseAt;
+        private long backoff;
+
+        PooledSession(String endpoint, int index) {
+            int separator = endpoint.lastIndexOf(':');
+            this.host = separator > 0 ? endpoint.substring(0, separator) : endpoint;
+            this.port = separator > 0 ? Integer.parseInt(endpoint.substring(separator + 1)) : smppProperties.getPort();
+            this.name = host + ":" + port + "#" + index;
+            this.backoff = smppProperties.getRebindInitialBackoff();
+            this.tokenBucket = new TokenBucket(smppProperties.getSessionTps(), smppProperties.getBurstSize(),
+                    smppProperties.getThrottleRecoveryMillis());
+
+            this.submittedCounter = Counter.builder("sms.session.submitted.total")
+                    .description("Total number of SubmitSm PDUs sent on the SMPP session")
+                    .tag("service", "order-processing")
+                    .tag("session", name)
+                    .register(meterRegistry);
+            this.rebindCounter = Counter.builder("sms.session.rebind.total")
+                    .description("Total number of rebind attempts for the SMPP session")
+                    .tag("service", "order-processing")
+                    .tag("session", name)
+                    .register(meterRegistry);
+            Gauge.builder("sms.session.window.used", this, PooledSession::windowUsed)
+                    .description("Number of requests waiting for a response in the session send window")
+                    .tag("service", "order-processing")
+                    .tag("session", name)
+                    .register(meterRegistry);
+            Gauge.builder("sms.session.inflight", inFlight, AtomicInteger::get)
+                    .description("Submits handed to the SMPP session and not yet completed, queued for the window or in it")
+                    .tag("service", "order-processing")
+                    .tag("session", name)
+                    .register(meterRegistry);
+            Gauge.builder("sms.session.tps.limit", tokenBucket, TokenBucket::getRate)
+                    .description("Current TPS limit of the session after adaptive slowdown (0 = unlimited)")
+                    .tag("service", "order-processing")
+                    .tag("session", name)
+                    .register(meterRegistry);
+            Gauge.builder("sms.session.bound", this, pooledSession -> pooledSession.isBound() ? 1 : 0)
+                    .description("Whether the SMPP session is currently bound")
+                    .tag("service", "order-processing")
+                    .tag("session", name)
+                    .register(meterRegistry);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public SmppSession getSession() {
+            return session;
+        }
+
+        public boolean isBound() {
+            SmppSession current = session;
+            return current != null && current.isBound();
+        }
+
+        public int windowUsed() {
+            SmppSession current = session;
+            return current != null ? current.getSendWindow().getSize() : 0;
+        }
+
+        /**
+         * Gives back the TPS token and the window slot taken by acquire() when nothing was sent with them
+         */
+        public void refund() {
+            tokenBucket.refund();
+            inFlight.decrementAndGet();
+        }
+
+        /**
+         * Frees the window slot taken by acquire() once its submit has completed, whatever the outcome
+         */
+        public void release() {
+            inFlight.decrementAndGet();
+        }
+
+        public void recordSubmit() {
+            submittedCounter.increment();
+        }
+
+        /**
+         * Slows the session down after the SMSC answered ESME_RTHROTTLED
+         */
+        public void recordThrottled() {
+            tokenBucket.penalize();
+        }
+
+        /**
+         * Drops the given session and schedules a background rebind.
+         * Ignored when the session has already been replaced.
+         */
+        public void markUnhealthy(SmppSession failed, String reason) {
+            synchronized (this) {
+                if (failed == null || session != failed) {
+                    return;
+                }
+                session = null;
+            }
+            log.warn("SMPP session {} marked unhealthy: {}", name, reason);
+            try {
+                failed.destroy();
+            } catch (Exception e) {
+                log.debug("Error destroying SMPP session {}: {}", name, e.getMessage());
+            }
+            scheduleRebind();
+        }
+
+        private void bind() {
+            if (closed) {
+                return;
+            }
+
+            try {
+                SmppSessionConfiguration config = new SmppSessionConfiguration();
+                config.setWindowSize(smppProperties.getWindowSize());
+                config.setName("OrderProcessingSession-" + name);
+                config.setType(SmppBindType.TRANSCEIVER);
+                config.setHost(host);
+                config.setPort(port);
+                config.setConnectTimeout(smppProperties.getConnectTimeout());
+                config.setBindTimeout(smppProperties.getBindTimeout());
+                config.setSystemId(smppProperties.getSystemId());
+                config.setPassword(smppProperties.getPassword());
+                config.setSystemType(smppProperties.getSystemType());
+                config.setRequestExpiryTimeout(smppProperties.getRequestExpiryTimeout());
+                config.setWindowMonitorInterval(smppProperties.getWindowMonitorInterval());
+
+                PoolSessionHandler handler = new PoolSessionHandler();
+                SmppSession bound = smppClient.bind(config, handler);
+                handler.boundSession = bound;
+                synchronized (this) {
+                    session = bound;
+                    backoff = smppProperties.getRebindInitialBackoff();
+                }
+                log.info("SMPP session {} bound successfully (window size {})", name, smppProperties.getWindowSize());
+            } catch (Exception e) {
+                log.warn("Could not bind SMPP session {}: {}", name, e.getMessage());
+                scheduleRebind();
+            }
+        }
+
+        private void scheduleRebind() {
+            if (closed || !rebindPending.compareAndSet(false, true)) {
+                return;
+            }
+
+            long delay;
+            synchronized (this) {
+                delay = backoff;
+                backoff = Math.min(backoff * 2, smppProperties.getRebindMaxBackoff());
+            }
+            rebindCounter.increment();
+            log.info("Rebinding SMPP session {} in {} ms", name, delay);
+
+            scheduler.schedule(() -> blockingExecutor.execute(() -> {
+                rebindPending.set(false);
+                bind();
+            }), delay, TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * Keepalive for an idle session. A session with requests in its window, or that received a
+         * response within the last enquireLinkInterval, has just shown it is alive and is skipped.
+         * Only a channel failure or a missing or failed enquire_link_resp drops the session; a
+         * window that filled up with submits meanwhile is not a reason to rebind.
+         */
+        private void enquireLink() {
+            SmppSession current = session;
+            if (current == null) {
+                return;
+            }
+            if (current.getSendWindow().getSize() > 0
+                    || System.currentTimeMillis() - lastResponseAt < smppProperties.getEnquireLinkInterval()) {
+                return;
+            }
+
+            CompletableFuture<PduResponse> response = new CompletableFuture<>();
+            EnquireLink enquireLink = new EnquireLink();
+            enquireLink.setReferenceObject(response);
+            try {
+                current.sendRequestPdu(enquireLink, smppProperties.getEnquireLinkTimeout(), false);
+            } catch (SmppChannelException e) {
+                markUnhealthy(current, "EnquireLink failed: " + e.getMessage());
+                return;
+            } catch (SmppTimeoutException e) {
+                log.debug("EnquireLink skipped on busy SMPP session {}: {}", name, e.getMessage());
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.warn("Could not send EnquireLink on SMPP session {}: {}", name, e.getMessage());
+                return;
+            }
+
+            response.orTimeout(smppProperties.getEnquireLinkTimeout(), TimeUnit.MILLISECONDS)
+                    .whenComplete((enquireLinkResp, error) -> {
+                        if (error != null) {
+                            markUnhealthy(current, "EnquireLink got no response");
+                        } else if (enquireLinkResp.getCommandStatus() != 0) {
+                            markUnhealthy(current, "EnquireLink returned status " + enquireLinkResp.getCommandStatus());
+                        }
+                    });
+        }
+
+        /**
+         * Completes the future stored as reference object of each asynchronous request
+         */
+        private class PoolSessionHandler extends DefaultSmppSessionHandler {
+
+            private volatile SmppSession boundSession;
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public void fireExpectedPduResponseReceived(PduAsyncResponse pduAsyncResponse) {
+                lastResponseAt = System.currentTimeMillis();
+                Object reference = pduAsyncResponse.getRequest().getReferenceObject();
+                if (reference instanceof CompletableFuture) {
+                    ((CompletableFuture<PduResponse>) reference).complete(pduAsyncResponse.getResponse());
+                }
+            }
+
+            @Override
+            public void firePduRequestExpired(PduRequest pduRequest) {
+                Object reference = pduRequest.getReferenceObject();
+                if (reference instanceof CompletableFuture) {
+                    ((CompletableFuture<?>) reference).completeExceptionally(
+                            new SmppTimeoutException("Request expired without response on session " + name));
+                }
+            }
+
+            @Override
+            public void fireChannelUnexpectedlyClosed() {
+                markUnhealthy(boundSession, "channel closed unexpectedly");
+            }
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        closed = true;
+
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        if (blockingExecutor != null) {
+            blockingExecutor.shutdownNow();
+        }
+
+        for (PooledSession pooledSession : sessions) {
+            SmppSession current = pooledSession.getSession();
+            if (current != null && current.isBound()) {
+                log.info("Closing SMPP session {}...", pooledSession.getName());
+                current.close();
+                current.destroy();
+            }
+        }
+
+        if (smppClient != null) {
+            log.info("Destroying SMPP client...");
+            smppClient.destroy();
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.hacom.telecom.order_processing_service.service;
+
+import com.hacom.telecom.order_processing_service.config.OutboxProperties;
+import com.hacom.telecom.order_processing_service.config.SmppProperties;
+import com.hacom.telecom.order_processing_service.model.SmsOutboxEntry;
+import com.hacom.telecom.order_processing_service.repository.SmsOutboxRepository;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteResult;
+import io.micrometer.core.instrument.Counter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Transactional outbox for order notification SMS.
+ * The order path only inserts an entry; a background dispatcher drains the
+ * collection in batches, retries with exponential backoff and dead-letters
+ * entries after outbox.maxAttempts. Entries left in SENDING by a crashed
+ * instance are picked up again once their lease expires. SENT and DEAD
+ * entries get a finishedAt and are removed after outbox.retention.
+ */
+@Service
+public class SmsOutboxService {
+
+    private static final Logger log = LoggerFactory.getLogger(SmsOutboxService.class);
+
+    @Autowired
+    private SmsOutboxRepository smsOutboxRepository;
+
+    @Autowired
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @Autowired
+    private SmppClientService smppClientService;
+
+    @Autowired
+    private SmppProperties smppProperties;
+
+    @Autowired
+    private OutboxProperties outboxProperties;
+
+    @Autowired
+    private Counter smsOutboxEnqueuedCounter;
+
+    @Autowired
+    private Counter smsOutboxDeadCounter;
+
+    private Disposable dispatcher;
+
+    @PostConstruct
+    public void init() {
+        if (!outboxProperties.isDispatcherEnabled() || !smppProperties.isEnabled()) {
+            log.info("SMS outbox dispatcher is disabled");
+            return;
+        }
+        if (smppProperties.getDeliveryTimeout() >= outboxProperties.getLease()) {
+            // Otherwise a slow send could be claimed again by another dispatcher and the SMS sent twice
+            throw new IllegalStateException("smpp.deliveryTimeout (" + smppProperties.getDeliveryTimeout()
+                    + " ms) must be below outbox.lease (" + outboxProperties.getLease() + " ms)");
+        }
+
+        dispatcher = Flux.interval(Duration.ofMillis(outboxProperties.getPollInterval()))
+                .onBackpressureDrop()
+                .concatMap(tick -> drainBatch()
+                        .onErrorResume(error -> {
+                            log.error("Error draining SMS outbox: {}", error.getMessage());
+                            return Mono.just(0L);
+                        }))
+                .subscribe();
+        log.info("SMS outbox dispatcher started (batch size {}, poll interval {} ms)",
+                outboxProperties.getBatchSize(), outboxProperties.getPollInterval());
+    }
+
+    /**
+     * Records the order processed notification; a second enqueue for the same order is ignored
+     */
+    public Mono<SmsOutboxEntry> enqueueOrderProcessedNotification(String orderId, String phoneNumber) {
+        return smsOutboxRepository.insert(new SmsOutboxEntry(orderId, phoneNumber))
+                .doOnSuccess(entry -> smsOutboxEnqueuedCounter.increment())
+                .onErrorResume(DuplicateKeyException.class, e -> {
+                    log.info("SMS notification for order {} is already in the outbox", orderId);
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * Records the notifications of a whole order batch with one unordered bulk insert; orders that
+     * already have an entry are skipped. Emits the number of entries added.
+     */
+    public Mono<Integer> enqueueOrderProcessedNotifications(List<SmsOutboxEntry> entries) {
+        if (entries.isEmpty()) {
+            return Mono.just(0);
+        }
+        return reactiveMongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, SmsOutboxEntry.class)
+                .insert(entries)
+                .execute()
+                .map(BulkWriteResult::getInsertedCount)
+                .onErrorResume(error -> {
+                    BulkWriteResult partial = partialResult(error);
+                    if (partial == null) {
+                        return Mono.error(error);
+                    }
+                    log.info("{} of {} SMS notifications were already in the outbox",
+                            entries.size() - partial.getInsertedCount(), entries.size());
+                    return Mono.just(partial.getInsertedCount());
+                })
+                .doOnNext(smsOutboxEnqueuedCounter::increment);
+    }
+
+    /**
+     * What a bulk insert that failed for some entries (duplicate orderIds) still wrote
+     */
+    private static BulkWriteResult partialResult(Throwable error) {
+        for (Throwable cause = error; cause != null && cause.getCause() != cause; cause = cause.getCause()) {
+            if (cause instanceof BulkOperationException) {
+                return ((BulkOperationException) cause).getResult();
+            }
+            if (cause instanceof MongoBulkWriteException) {
+                return ((MongoBulkWriteException) cause).getWriteResult();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Claims up to batchSize due entries and sends them; emits the number of entries processed
+     */
+    private Mono<Long> drainBatch() {
+        Instant now = Instant.now();
+        Query due = Query.query(claimable(now))
+                .with(Sort.by(Sort.Direction.ASC, "nextAttemptAt"))
+                .limit(outboxProperties.getBatchSize());
+        due.fields().include("_id");
+
+        return reactiveMongoTemplate.find(due, SmsOutboxEntry.class)
+                .concatMap(candidate -> claim(candidate.getId(), now))
+                .flatMap(this::dispatch, outboxProperties.getBatchSize())
+                .count();
+    }
+
+    private Criteria claimable(Instant now) {
+        return new Criteria().orOperator(
+                Criteria.where("status").is(SmsOutboxEntry.PENDING).and("nextAttemptAt").lte(now),
+                Criteria.where("status").is(SmsOutboxEntry.SENDING).and("lockedUntil").lt(now)
+        );
+    }
+
+    /**
+     * Takes a lease on the entry so concurrent dispatchers never send it twice
+     */
+    private Mono<SmsOutboxEntry> claim(String id, Instant now) {
+        Query query = Query.query(new Criteria().andOperator(Criteria.where("_id").is(id), claimable(now)));
+        Update update = new Update()
+                .set("status", SmsOutboxEntry.SENDING)
+                .set("lockedUntil", now.plusMillis(outboxProperties.getLease()))
+                .inc("attempts", 1);
+        return reactiveMongoTemplate.findAndModify(query, update,
+                FindAndModifyOptions.options().returnNew(true), SmsOutboxEntry.class);
+    }
+
+    private Mono<SmsOutboxEntry> dispatch(SmsOutboxEntry entry) {
+        return Mono.fromCompletionStage(() ->
+                        smppClientService.sendOrderProcessedNotification(entry.getOrderId(), entry.getPhoneNumber()))
+                .onErrorReturn(false)
+                .flatMap(sent -> sent ? markSent(entry) : scheduleRetry(entry, "SMSC did not accept the message"));
+    }
+
+    private Mono<SmsOutboxEntry> markSent(SmsOutboxEntry entry) {
+        Update update = new Update()
+                .set("status", SmsOutboxEntry.SENT)
+                .set("finishedAt", Instant.now())
+                .unset("lockedUntil")
+                .unset("lastError");
+        return updateEntry(entry, update);
+    }
+
+    private Mono<SmsOutboxEntry> scheduleRetry(SmsOutboxEntry entry, String error) {
+        Update update = new Update()
+                .set("lastError", error)
+                .unset("lockedUntil");
+
+        if (entry.getAttempts() >= outboxProperties.getMaxAttempts()) {
+            log.error("SMS notification for order {} moved to dead letter after {} attempts",
+                    entry.getOrderId(), entry.getAttempts());
+            smsOutboxDeadCounter.increment();
+            update.set("status", SmsOutboxEntry.DEAD)
+                    .set("finishedAt", Instant.now());
+        } else {
+            long delay = backoff(entry.getAttempts());
+            log.warn("SMS notification for order {} failed (attempt {}). Retrying in {} ms",
+                    entry.getOrderId(), entry.getAttempts(), delay);
+            update.set("status", SmsOutboxEntry.PENDING)
+                    .set("nextAttemptAt", Instant.now().plusMillis(delay));
+        }
+        return updateEntry(entry, update);
+    }
+
+    private long backoff(int attempts) {
+        long delay = outboxProperties.getInitialBackoff() << Math.min(Math.max(attempts - 1, 0), 30);
+        return Math.min(delay, outboxProperties.getMaxBackoff());
+    }
+
+    private Mono<SmsOutboxEntry> updateEntry(SmsOutboxEntry entry, Update update) {
+        // Only the holder of the current lease may complete the entry
+        Query query = Query.query(Criteria.where("_id").is(entry.getId())
+                .and("status").is(SmsOutboxEntry.SENDING)
+                .and("attempts").is(entry.getAttempts()));
+        return reactiveMongoTemplate.updateFirst(query, update, SmsOutboxEntry.class)
+                .thenReturn(entry);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (dispatcher != null) {
+            dispatcher.dispose();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.hacom.telecom.order_processing_service.service;
+
+/**
+ * Non-blocking token bucket with an adaptive rate.
+ * penalize() halves the rate after an ESME_RTHROTTLED response and the rate then
+ * recovers linearly to its nominal value. A rate of zero or less disables limiting.
+ */
+public class TokenBucket {
+
+    private static final double MIN_RATE_FRACTION = 0.05;
+
+    private final double nominalRate;
+    private final double capacity;
+    private final long recoveryNanos;
+    private double rate;
+    private double tokens;
+    private long lastRefill;
+
+    public TokenBucket(double ratePerSecond, int burst, long recoveryMillis) {
+        this.nominalRate = ratePerSecond;
+        this.capacity = Math.max(1, burst > 0 ? burst : ratePerSecond);
+        this.recoveryNanos = Math.max(1, recoveryMillis) * 1_000_000L;
+        this.rate = ratePerSecond;
+        this.tokens = capacity;
+        this.lastRefill = System.nanoTime();
+    }
+
+    public boolean isLimited() {
+        return nominalRate > 0;
+    }
+
+    public synchronized boolean hasToken() {
+        if (!isLimited()) {
+            return true;
+        }
+        refill(System.nanoTime());
+        return tokens >= 1;
+    }
+
+    public synchronized boolean tryAcquire() {
+        if (!isLimited()) {
+            return true;
+        }
+        refill(System.nanoTime());
+        if (tokens >= 1) {
+            tokens -= 1;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Gives back a token taken for a message that could not be dispatched
+     */
+    public synchronized void refund() {
+        if (isLimited()) {
+            tokens = Math.min(capacity, tokens + 1);
+        }
+    }
+
+    /**
+     * Multiplicative slowdown after the SMSC reported throttling
+     */
+    public synchronized void penalize() {
+        if (!isLimited()) {
+            return;
+        }
+        refill(System.nanoTime());
+        rate = Math.max(rate / 2, nominalRate * MIN_RATE_FRACTION);
+        tokens = Math.min(tokens, 1);
+    }
+
+    public synchronized double getRate() {
+        return isLimited() ? rate : 0;
+    }
+
+    private void refill(long now) {
+        long elapsed = now - lastRefill;
+        if (elapsed <= 0) {
+            return;
+        }
+        lastRefill = now;
+
+        if (rate < nominalRate) {
+            rate = Math.min(nominalRate, rate + nominalRate * elapsed / recoveryNanos);
+        }
+        tokens = Math.min(capacity, tokens + rate * elapsed / 1_000_000_000d);
+    }
+}
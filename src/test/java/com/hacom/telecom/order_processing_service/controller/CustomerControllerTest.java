@@ -0,0 +1,166 @@
+package com.hacom.telecom.order_processing_service.controller;
+
+import com.hacom.telecom.order_processing_service.config.OrderProperties;
+import com.hacom.telecom.order_processing_service.model.Order;
+import com.hacom.telecom.order_processing_service.model.OrderSummary;
+import com.hacom.telecom.order_processing_service.service.OrderService;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+class CustomerControllerTest {
+
+	private static final Instant TS = Instant.parse("2026-03-01T12:00:00Z");
+
+	private final OrderProperties orderProperties = new OrderProperties();
+	private final ReactiveMongoTemplate template = mock(ReactiveMongoTemplate.class);
+	// The customer's orders in the fake collection, newest first
+	private final List<OrderSummary> orders = new ArrayList<>();
+	private final List<Query> queries = new CopyOnWriteArrayList<>();
+	private WebTestClient client;
+
+	@BeforeEach
+	void setUp() {
+		when(template.getCollectionName(Order.class)).thenReturn("orders");
+		when(template.find(any(Query.class), eq(OrderSummary.class), eq("orders"))).thenAnswer(invocation -> {
+			Query query = invocation.getArgument(0);
+			queries.add(query);
+			return Flux.fromIterable(orders).take(query.getLimit());
+		});
+
+		OrderService orderService = new OrderService();
+		setField(orderService, "reactiveMongoTemplate", template);
+
+		CustomerController controller = new CustomerController();
+		setField(controller, "orderService", orderService);
+		setField(controller, "orderProperties", orderProperties);
+		client = WebTestClient.bindToController(controller).build();
+	}
+
+	@Test
+	void readsOnlyTheSummaryFieldsNewestFirst() {
+		orders.add(summary(TS));
+
+		history("/api/v1/customers/CUST-1/orders").expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.customerId").isEqualTo("CUST-1")
+				.jsonPath("$.count").isEqualTo(1)
+				.jsonPath("$.orders[0].items").doesNotExist()
+				.jsonPath("$.nextCursor").isEmpty();
+
+		Query query = lastQuery();
+		assertThat(query.getQueryObject()).isEqualTo(new Document("customerId", "CUST-1"));
+		assertThat(query.getFieldsObject().keySet()).containsExactlyInAnyOrder(OrderSummary.FIELDS);
+		assertThat(query.getSortObject()).isEqualTo(new Document("ts", -1).append("_id", -1));
+		assertThat(query.getLimit()).isEqualTo(orderProperties.getPageSize() + 1);
+	}
+
+	@Test
+	void restrictsToTheLastDays() {
+		history("/api/v1/customers/CUST-1/orders?days=7").expectStatus().isOk();
+
+		Document ts = lastQuery().getQueryObject().get("ts", Document.class);
+		OffsetDateTime since = (OffsetDateTime) ts.get("$gte");
+		assertThat(since.toInstant()).isCloseTo(Instant.now().minus(Duration.ofDays(7)), within(1, ChronoUnit.MINUTES));
+	}
+
+	@Test
+	void rejectsDaysThatAreNotPositive() {
+		history("/api/v1/customers/CUST-1/orders?days=0").expectStatus().isBadRequest()
+				.expectBody()
+				.jsonPath("$.message").isEqualTo("days must be greater than 0");
+		history("/api/v1/customers/CUST-1/orders?days=-3").expectStatus().isBadRequest();
+		assertThat(queries).isEmpty();
+	}
+
+	@Test
+	void clampsTheLimitToOneAndToTheMaxPageSize() {
+		history("/api/v1/customers/CUST-1/orders?limit=0").expectStatus().isOk();
+		assertThat(lastQuery().getLimit()).isEqualTo(2);
+
+		history("/api/v1/customers/CUST-1/orders?limit=100000").expectStatus().isOk();
+		assertThat(lastQuery().getLimit()).isEqualTo(orderProperties.getMaxPageSize() + 1);
+	}
+
+	@Test
+	void pagesToOlderOrdersThroughTheCursor() {
+		OrderSummary newest = summary(TS);
+		OrderSummary older = summary(TS.minusSeconds(60));
+		orders.addAll(List.of(newest, older, summary(TS.minusSeconds(120))));
+
+		String expected = cursor(older.getTs().toInstant(), older.getId());
+		history("/api/v1/customers/CUST-1/orders?limit=2").expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.count").isEqualTo(2)
+				.jsonPath("$.nextCursor").isEqualTo(expected);
+
+		history("/api/v1/customers/CUST-1/orders?limit=2&cursor=" + expected).expectStatus().isOk();
+
+		List<Document> clauses = lastQuery().getQueryObject().getList("$and", Document.class);
+		assertThat(clauses.get(0)).isEqualTo(new Document("customerId", "CUST-1"));
+		// Strictly older than the last order of the previous page
+		Instant olderTs = older.getTs().toInstant();
+		assertThat(clauses.get(1).getList("$or", Document.class)).containsExactly(
+				new Document("ts", new Document("$lt", olderTs)),
+				new Document("ts", olderTs).append("_id", new Document("$lt", new ObjectId(older.getId()))));
+	}
+
+	@Test
+	void rejectsAMalformedCursor() {
+		history("/api/v1/customers/CUST-1/orders?cursor=" + encode("no-separator")).expectStatus().isBadRequest()
+				.expectBody()
+				.jsonPath("$.message").isEqualTo("Invalid cursor");
+		assertThat(queries).isEmpty();
+	}
+
+	private WebTestClient.ResponseSpec history(String uri) {
+		return client.get().uri(uri).accept(MediaType.APPLICATION_JSON).exchange();
+	}
+
+	private Query lastQuery() {
+		return queries.get(queries.size() - 1);
+	}
+
+	private static OrderSummary summary(Instant ts) {
+		OrderSummary summary = new OrderSummary();
+		summary.setId(new ObjectId().toHexString());
+		summary.setOrderId("ORD-" + ts.getEpochSecond());
+		summary.setCustomerId("CUST-1");
+		summary.setStatus("PROCESSING");
+		summary.setTs(OffsetDateTime.ofInstant(ts, ZoneOffset.UTC));
+		return summary;
+	}
+
+	private static String cursor(Instant ts, String id) {
+		return encode(ts.toEpochMilli() + ":" + id);
+	}
+
+	private static String encode(String position) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,176 @@
+package com.hacom.telecom.order_processing_service.controller;
+
+import com.hacom.telecom.order_processing_service.config.OrderProperties;
+import com.hacom.telecom.order_processing_service.model.Order;
+import com.hacom.telecom.order_processing_service.service.OrderService;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+class OrderControllerTest {
+
+	private static final Instant TS = Instant.parse("2026-03-01T12:00:00Z");
+
+	private final OrderProperties orderProperties = new OrderProperties();
+	private final ReactiveMongoTemplate template = mock(ReactiveMongoTemplate.class);
+	// Orders in the fake collection, already in (ts, _id) order
+	private final List<Order> orders = new ArrayList<>();
+	private final List<Query> queries = new CopyOnWriteArrayList<>();
+	private WebTestClient client;
+
+	@BeforeEach
+	void setUp() {
+		when(template.find(any(Query.class), eq(Order.class))).thenAnswer(invocation -> {
+			Query query = invocation.getArgument(0);
+			queries.add(query);
+			return Flux.fromIterable(orders).take(query.getLimit() > 0 ? query.getLimit() : Long.MAX_VALUE);
+		});
+
+		OrderService orderService = new OrderService();
+		setField(orderService, "reactiveMongoTemplate", template);
+		setField(orderService, "orderProperties", orderProperties);
+
+		OrderController controller = new OrderController();
+		setField(controller, "orderService", orderService);
+		setField(controller, "orderProperties", orderProperties);
+		client = WebTestClient.bindToController(controller).build();
+	}
+
+	@Test
+	void usesTheDefaultPageSizeWithoutALimit() {
+		list("/api/v1/orders").expectStatus().isOk();
+
+		// One more than the page, to know whether there is a next page
+		assertThat(lastQuery().getLimit()).isEqualTo(orderProperties.getPageSize() + 1);
+	}
+
+	@Test
+	void clampsTheLimitToOneAndToTheMaxPageSize() {
+		list("/api/v1/orders?limit=0").expectStatus().isOk();
+		assertThat(lastQuery().getLimit()).isEqualTo(2);
+
+		list("/api/v1/orders?limit=-5").expectStatus().isOk();
+		assertThat(lastQuery().getLimit()).isEqualTo(2);
+
+		list("/api/v1/orders?limit=" + (orderProperties.getMaxPageSize() + 1)).expectStatus().isOk();
+		assertThat(lastQuery().getLimit()).isEqualTo(orderProperties.getMaxPageSize() + 1);
+	}
+
+	@Test
+	void returnsANextCursorOnlyWhenThereAreMoreOrders() {
+		Order first = order(TS);
+		Order second = order(TS.plusSeconds(1));
+		orders.addAll(List.of(first, second, order(TS.plusSeconds(2))));
+
+		list("/api/v1/orders?limit=2").expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.count").isEqualTo(2)
+				.jsonPath("$.orders[1].orderId").isEqualTo(second.getOrderId())
+				.jsonPath("$.nextCursor").isEqualTo(cursor(second.getTs().toInstant(), second.getId()));
+
+		orders.remove(2);
+		list("/api/v1/orders?limit=2").expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.count").isEqualTo(2)
+				.jsonPath("$.nextCursor").isEmpty();
+	}
+
+	@Test
+	void continuesStrictlyAfterTheCursorPosition() {
+		String id = new ObjectId().toHexString();
+
+		list("/api/v1/orders?limit=2&status=PENDING&cursor=" + cursor(TS, id)).expectStatus().isOk();
+
+		Document query = lastQuery().getQueryObject();
+		List<Document> clauses = query.getList("$and", Document.class);
+		assertThat(clauses.get(0)).isEqualTo(new Document("status", "PENDING"));
+		assertThat(clauses.get(1).getList("$or", Document.class)).containsExactly(
+				new Document("ts", new Document("$gt", TS)),
+				new Document("ts", TS).append("_id", new Document("$gt", new ObjectId(id))));
+		assertThat(lastQuery().getSortObject()).isEqualTo(new Document("ts", 1).append("_id", 1));
+	}
+
+	@Test
+	void keepsACursorIdThatIsNotAnObjectId() {
+		list("/api/v1/orders?cursor=" + cursor(TS, "legacy-42")).expectStatus().isOk();
+
+		List<Document> or = lastQuery().getQueryObject().getList("$and", Document.class).get(0).getList("$or", Document.class);
+		assertThat(or.get(1)).isEqualTo(new Document("ts", TS).append("_id", new Document("$gt", "legacy-42")));
+	}
+
+	@Test
+	void rejectsAMalformedCursor() {
+		for (String cursor : List.of("not*base64", encode("no-separator"), encode("yesterday:" + new ObjectId()), encode(":abc"))) {
+			list("/api/v1/orders?cursor=" + cursor).expectStatus().isBadRequest()
+					.expectBody()
+					.jsonPath("$.message").isEqualTo("Invalid cursor");
+		}
+		assertThat(queries).isEmpty();
+	}
+
+	@Test
+	void exportStreamsEveryMatchingOrderAsNdjson() {
+		orders.addAll(List.of(order(TS), order(TS.plusSeconds(1))));
+
+		List<Map> exported = client.get().uri("/api/v1/orders/export?customerId=CUST-1")
+				.accept(MediaType.APPLICATION_NDJSON)
+				.exchange()
+				.expectStatus().isOk()
+				.expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+				.returnResult(Map.class)
+				.getResponseBody()
+				.collectList()
+				.block();
+
+		assertThat(exported).hasSize(2);
+		assertThat(lastQuery().getQueryObject()).isEqualTo(new Document("$and", List.of(new Document("customerId", "CUST-1"))));
+		// No limit: the whole result is streamed from the cursor
+		assertThat(lastQuery().getLimit()).isZero();
+	}
+
+	private WebTestClient.ResponseSpec list(String uri) {
+		return client.get().uri(uri).accept(MediaType.APPLICATION_JSON).exchange();
+	}
+
+	private Query lastQuery() {
+		return queries.get(queries.size() - 1);
+	}
+
+	private static Order order(Instant ts) {
+		Order order = new Order("ORD-" + ts.getEpochSecond(), "CUST-1", "+51987654321", List.of(), "PENDING");
+		order.setId(new ObjectId().toHexString());
+		order.setTs(OffsetDateTime.ofInstant(ts, ZoneOffset.UTC));
+		return order;
+	}
+
+	private static String cursor(Instant ts, String id) {
+		return encode(ts.toEpochMilli() + ":" + id);
+	}
+
+	private static String encode(String position) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+	}
+}
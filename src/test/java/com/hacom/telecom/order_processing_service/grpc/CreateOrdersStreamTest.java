@@ -0,0 +1,144 @@
+package com.hacom.telecom.order_processing_service.grpc;
+
+import com.hacom.telecom.order_processing_service.service.OrderPipeline;
+import io.grpc.Context;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CreateOrdersStreamTest {
+
+	private final OrderPipeline orderPipeline = mock(OrderPipeline.class);
+	@SuppressWarnings("unchecked")
+	private final ServerCallStreamObserver<CreateOrderResponse> call = mock(ServerCallStreamObserver.class);
+	// Orders the fake pipeline still admits; the rest are refused as over the in-flight limit
+	private final AtomicInteger capacity = new AtomicInteger();
+	// Orders admitted, in admission order; answered at once unless answerLater is set
+	private final List<String> admitted = new CopyOnWriteArrayList<>();
+	private final List<StreamObserver<CreateOrderResponse>> unanswered = new CopyOnWriteArrayList<>();
+	private volatile boolean answerLater;
+
+	@BeforeEach
+	void setUp() {
+		when(call.isReady()).thenReturn(true);
+		when(orderPipeline.processOrder(any(), any(), any())).thenAnswer(invocation -> {
+			if (capacity.getAndUpdate(free -> Math.max(0, free - 1)) == 0) {
+				return false;
+			}
+			CreateOrderRequest request = invocation.getArgument(0);
+			StreamObserver<CreateOrderResponse> observer = invocation.getArgument(1);
+			admitted.add(request.getOrderId());
+			if (answerLater) {
+				unanswered.add(observer);
+			} else {
+				observer.onNext(response(request.getOrderId()));
+				observer.onCompleted();
+			}
+			return true;
+		});
+	}
+
+	@Test
+	void retriesParkedOrdersInStreamOrderOnceThereIsCapacity() throws Exception {
+		CreateOrdersStream stream = new CreateOrdersStream(call, orderPipeline, 4);
+		verify(call).request(4);
+
+		stream.onNext(request("ORD-1"));
+		stream.onNext(request("ORD-2"));
+		Thread.sleep(150);
+		assertThat(admitted).isEmpty();
+		verify(call, never()).onNext(any());
+		// No more demand while orders are parked
+		verify(call, never()).request(1);
+
+		capacity.set(2);
+		await(() -> admitted.size() == 2);
+		assertThat(admitted).containsExactly("ORD-1", "ORD-2");
+
+		ArgumentCaptor<CreateOrderResponse> responses = ArgumentCaptor.forClass(CreateOrderResponse.class);
+		verify(call, times(2)).onNext(responses.capture());
+		assertThat(responses.getAllValues()).extracting(CreateOrderResponse::getOrderId).containsExactly("ORD-1", "ORD-2");
+		verify(call, times(2)).request(1);
+
+		stream.onCompleted();
+		verify(call).onCompleted();
+	}
+
+	@Test
+	void completesAfterHalfCloseOnlyOnceEveryOrderHasAnswered() {
+		capacity.set(2);
+		answerLater = true;
+		CreateOrdersStream stream = new CreateOrdersStream(call, orderPipeline, 4);
+
+		stream.onNext(request("ORD-1"));
+		stream.onNext(request("ORD-2"));
+		stream.onCompleted();
+		unanswered.get(0).onNext(response("ORD-1"));
+		verify(call, never()).onCompleted();
+
+		unanswered.get(1).onError(new IllegalStateException("boom"));
+
+		InOrder inOrder = inOrder(call);
+		inOrder.verify(call).onNext(response("ORD-1"));
+		inOrder.verify(call).onNext(any());
+		inOrder.verify(call).onCompleted();
+		// The client half-closed, so no more demand is signalled
+		verify(call, never()).request(1);
+	}
+
+	@Test
+	void stopsRetryingParkedOrdersOnceTheCallIsCancelled() throws Exception {
+		Context.CancellableContext context = Context.current().withCancellation();
+		CreateOrdersStream stream = context.call(() -> new CreateOrdersStream(call, orderPipeline, 4));
+
+		stream.onNext(request("ORD-1"));
+		context.cancel(null);
+		capacity.set(1);
+		Thread.sleep(200);
+
+		assertThat(admitted).isEmpty();
+		verify(call, never()).onNext(any());
+	}
+
+	private static CreateOrderRequest request(String orderId) {
+		return CreateOrderRequest.newBuilder()
+				.setOrderId(orderId)
+				.setCustomerId("CUST-1")
+				.setCustomerPhone("+51987654321")
+				.addItems(OrderItem.newBuilder().setItemId("ITEM-1").setProductName("Chip").setQuantity(1).setPrice(10.0))
+				.build();
+	}
+
+	private static CreateOrderResponse response(String orderId) {
+		return CreateOrderResponse.newBuilder()
+				.setOrderId(orderId)
+				.setStatus("PROCESSING")
+				.build();
+	}
+
+	private static void await(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!condition.getAsBoolean()) {
+			assertThat(System.nanoTime()).as("condition not met within 5s").isLessThan(deadline);
+			Thread.sleep(10);
+		}
+	}
+}
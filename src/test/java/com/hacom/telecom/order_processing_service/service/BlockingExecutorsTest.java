@@ -0,0 +1,70 @@
+package com.hacom.telecom.order_processing_service.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BlockingExecutorsTest {
+
+	private ExecutorService executor;
+
+	@AfterEach
+	void tearDown() {
+		if (executor != null) {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	void platformModeIsAFixedPoolOfNamedDaemonThreads() throws Exception {
+		executor = BlockingExecutors.create("smpp-test", "PLATFORM", 3);
+
+		Thread thread = executor.submit(Thread::currentThread).get(5, TimeUnit.SECONDS);
+
+		assertThat(executor).isInstanceOf(ThreadPoolExecutor.class);
+		assertThat(((ThreadPoolExecutor) executor).getMaximumPoolSize()).isEqualTo(3);
+		assertThat(thread.getName()).isEqualTo("smpp-test-1");
+		assertThat(thread.isDaemon()).isTrue();
+		assertThat(isVirtual(thread)).isFalse();
+	}
+
+	@Test
+	void virtualModeUsesVirtualThreadsOnJava21AndFallsBackToPlatformThreadsBefore() throws Exception {
+		executor = BlockingExecutors.create("smpp-test", "virtual", 2);
+
+		Thread thread = executor.submit(Thread::currentThread).get(5, TimeUnit.SECONDS);
+
+		assertThat(thread.getName()).isEqualTo("smpp-test-1");
+		if (Runtime.version().feature() >= 21) {
+			assertThat(isVirtual(thread)).isTrue();
+		} else {
+			assertThat(executor).isInstanceOf(ThreadPoolExecutor.class);
+			assertThat(((ThreadPoolExecutor) executor).getMaximumPoolSize()).isEqualTo(2);
+			assertThat(thread.isDaemon()).isTrue();
+		}
+	}
+
+	@Test
+	void unknownModeIsRejected() {
+		assertThatThrownBy(() -> BlockingExecutors.create("smpp-test", "green", 2))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("green");
+	}
+
+	/**
+	 * Thread.isVirtual() only exists from Java 21; before that every thread is a platform thread
+	 */
+	private static boolean isVirtual(Thread thread) throws ReflectiveOperationException {
+		try {
+			return (boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+}
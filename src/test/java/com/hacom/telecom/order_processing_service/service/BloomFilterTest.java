@@ -0,0 +1,47 @@
+package com.hacom.telecom.order_processing_service.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BloomFilterTest {
+
+	@Test
+	void hasNoFalseNegatives() {
+		BloomFilter filter = BloomFilter.create(10_000, 0.01, 1 << 20);
+
+		for (int i = 0; i < 10_000; i++) {
+			filter.add("ORD-" + i);
+		}
+
+		for (int i = 0; i < 10_000; i++) {
+			assertThat(filter.mightContain("ORD-" + i)).isTrue();
+		}
+	}
+
+	@Test
+	void falsePositiveRateStaysNearTarget() {
+		BloomFilter filter = BloomFilter.create(10_000, 0.01, 1 << 20);
+		for (int i = 0; i < 10_000; i++) {
+			filter.add("ORD-" + i);
+		}
+
+		int falsePositives = 0;
+		for (int i = 0; i < 100_000; i++) {
+			if (filter.mightContain("NEW-" + i)) {
+				falsePositives++;
+			}
+		}
+
+		assertThat(falsePositives).isLessThan(2_000);
+	}
+
+	@Test
+	void memoryBudgetCapsSizeAndCapacity() {
+		BloomFilter filter = BloomFilter.create(10_000_000, 0.01, 1024);
+
+		assertThat(filter.getSizeInBytes()).isLessThanOrEqualTo(1024);
+		assertThat(filter.getCapacity()).isLessThan(10_000_000);
+	}
+
+}
@@ -0,0 +1,150 @@
+package com.hacom.telecom.order_processing_service.service;
+
+import com.hacom.telecom.order_processing_service.grpc.CreateOrderRequest;
+import com.hacom.telecom.order_processing_service.grpc.CreateOrderResponse;
+import com.hacom.telecom.order_processing_service.model.Order;
+import com.hacom.telecom.order_processing_service.model.SmsOutboxEntry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+class OrderBatchServiceTest {
+
+	private final OrderService orderService = mock(OrderService.class);
+	private final SmsOutboxService smsOutboxService = mock(SmsOutboxService.class);
+	private OrderBatchService orderBatchService;
+
+	@BeforeEach
+	void setUp() {
+		orderBatchService = new OrderBatchService();
+		setField(orderBatchService, "orderService", orderService);
+		setField(orderBatchService, "smsOutboxService", smsOutboxService);
+	}
+
+	@Test
+	void answersEveryOrderInRequestOrder() {
+		List<CreateOrderRequest> requests = List.of(request("ORD-3"), request("ORD-1"), request("ORD-2"), request("ORD-4"));
+		results(created(requests.get(0)), duplicate(requests.get(1)),
+				failed(new IllegalStateException("bad items")), created(requests.get(3)));
+		enqueues(Mono.just(3));
+
+		List<CreateOrderResponse> responses = orderBatchService.createBatch(requests).block();
+
+		assertThat(responses).extracting(CreateOrderResponse::getOrderId).containsExactly("ORD-3", "ORD-1", "ORD-2", "ORD-4");
+		assertThat(responses).extracting(CreateOrderResponse::getStatus).containsExactly("PROCESSING", "PROCESSING", "ERROR", "PROCESSING");
+		assertThat(responses.get(0).getMessage()).isEqualTo("Order received and is being processed");
+		assertThat(responses.get(1).getMessage()).isEqualTo("Order already received and is being processed");
+		assertThat(responses.get(2).getMessage()).isEqualTo("Failed to process order: bad items");
+	}
+
+	@Test
+	void queuesNotificationsForDuplicatesButNotForFailedOrders() {
+		List<CreateOrderRequest> requests = List.of(request("ORD-1"), request("ORD-2"), request("ORD-3"));
+		results(created(requests.get(0)), duplicate(requests.get(1)), failed(new IllegalStateException("bad items")));
+		enqueues(Mono.just(2));
+
+		orderBatchService.createBatch(requests).block();
+
+		@SuppressWarnings("unchecked")
+		ArgumentCaptor<List<SmsOutboxEntry>> notifications = ArgumentCaptor.forClass(List.class);
+		verify(smsOutboxService).enqueueOrderProcessedNotifications(notifications.capture());
+		assertThat(notifications.getValue()).extracting(SmsOutboxEntry::getOrderId).containsExactly("ORD-1", "ORD-2");
+		assertThat(notifications.getValue()).extracting(SmsOutboxEntry::getPhoneNumber).containsOnly("+51987654321");
+	}
+
+	@Test
+	void respondsOnlyOnceTheNotificationsAreQueued() {
+		List<CreateOrderRequest> requests = List.of(request("ORD-1"));
+		results(created(requests.get(0)));
+		AtomicInteger attempts = new AtomicInteger();
+		enqueues(Mono.defer(() -> attempts.incrementAndGet() == 1
+				? Mono.error(new DataAccessResourceFailureException("primary stepped down"))
+				: Mono.just(1)));
+
+		List<CreateOrderResponse> responses = orderBatchService.createBatch(requests).block(Duration.ofSeconds(10));
+
+		assertThat(attempts).hasValue(2);
+		assertThat(responses).extracting(CreateOrderResponse::getStatus).containsExactly("PROCESSING");
+	}
+
+	@Test
+	void answersErrorWhenTheOutboxInsertKeepsFailing() {
+		List<CreateOrderRequest> requests = List.of(request("ORD-1"), request("ORD-2"));
+		results(created(requests.get(0)), duplicate(requests.get(1)));
+		AtomicInteger attempts = new AtomicInteger();
+		enqueues(Mono.defer(() -> {
+			attempts.incrementAndGet();
+			return Mono.error(new DataAccessResourceFailureException("no primary"));
+		}));
+
+		List<CreateOrderResponse> responses = orderBatchService.createBatch(requests).block(Duration.ofSeconds(10));
+
+		// The first attempt and three retries
+		assertThat(attempts).hasValue(4);
+		assertThat(responses).extracting(CreateOrderResponse::getOrderId).containsExactly("ORD-1", "ORD-2");
+		assertThat(responses).allSatisfy(response -> {
+			assertThat(response.getStatus()).isEqualTo("ERROR");
+			assertThat(response.getMessage()).isEqualTo("Failed to process order: no primary");
+		});
+	}
+
+	@Test
+	void answersErrorForTheWholeBatchWhenItCannotBeStored() {
+		List<CreateOrderRequest> requests = List.of(request("ORD-1"), request("ORD-2"));
+		when(orderService.createOrders(requests)).thenReturn(Mono.error(new DataAccessResourceFailureException("timeout")));
+
+		List<CreateOrderResponse> responses = orderBatchService.createBatch(requests).block();
+
+		assertThat(responses).extracting(CreateOrderResponse::getStatus).containsExactly("ERROR", "ERROR");
+		verify(smsOutboxService, never()).enqueueOrderProcessedNotifications(anyList());
+	}
+
+	private void results(OrderBatchWriter.InsertResult... results) {
+		when(orderService.createOrders(any())).thenReturn(Mono.just(List.of(results)));
+	}
+
+	private void enqueues(Mono<Integer> insert) {
+		when(smsOutboxService.enqueueOrderProcessedNotifications(anyList())).thenReturn(insert);
+	}
+
+	private static OrderBatchWriter.InsertResult created(CreateOrderRequest request) {
+		return new OrderBatchWriter.InsertResult(order(request), null);
+	}
+
+	private static OrderBatchWriter.InsertResult duplicate(CreateOrderRequest request) {
+		Order order = order(request);
+		order.setDuplicate(true);
+		return new OrderBatchWriter.InsertResult(order, null);
+	}
+
+	private static OrderBatchWriter.InsertResult failed(Throwable error) {
+		return new OrderBatchWriter.InsertResult(null, error);
+	}
+
+	private static Order order(CreateOrderRequest request) {
+		return new Order(request.getOrderId(), request.getCustomerId(), request.getCustomerPhone(), List.of(), "PENDING");
+	}
+
+	private static CreateOrderRequest request(String orderId) {
+		return CreateOrderRequest.newBuilder()
+				.setOrderId(orderId)
+				.setCustomerId("CUST-1")
+				.setCustomerPhone("+51987654321")
+				.build();
+	}
+}
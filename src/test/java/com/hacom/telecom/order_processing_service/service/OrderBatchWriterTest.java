@@ -0,0 +1,172 @@
+package com.hacom.telecom.order_processing_service.service;
+
+import com.hacom.telecom.order_processing_service.config.OrderProperties;
+import com.hacom.telecom.order_processing_service.grpc.CreateOrderRequest;
+import com.hacom.telecom.order_processing_service.grpc.OrderItem;
+import com.hacom.telecom.order_processing_service.model.Order;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoSocketReadTimeoutException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.ReactiveCollectionCallback;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+class OrderBatchWriterTest {
+
+	private final OrderProperties orderProperties = new OrderProperties();
+	// Documents of every insertMany call, in call order
+	private final List<List<RawBsonDocument>> bulkInserts = new CopyOnWriteArrayList<>();
+	private volatile Supplier<Publisher<?>> insertResult = Mono::empty;
+	private OrderBatchWriter orderBatchWriter;
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	void setUp() {
+		MongoCollection<Document> collection = mock(MongoCollection.class);
+		MongoCollection<RawBsonDocument> rawCollection = mock(MongoCollection.class);
+		when(collection.withDocumentClass(RawBsonDocument.class)).thenReturn(rawCollection);
+		when(rawCollection.insertMany(anyList(), any(InsertManyOptions.class))).thenAnswer(invocation -> {
+			bulkInserts.add(List.copyOf(invocation.<List<RawBsonDocument>>getArgument(0)));
+			return insertResult.get();
+		});
+
+		ReactiveMongoTemplate template = mock(ReactiveMongoTemplate.class);
+		when(template.execute(eq(Order.class), any(ReactiveCollectionCallback.class))).thenAnswer(invocation ->
+				Flux.from(invocation.<ReactiveCollectionCallback<?>>getArgument(1).doInCollection(collection)));
+
+		orderBatchWriter = new OrderBatchWriter();
+		setField(orderBatchWriter, "reactiveMongoTemplate", template);
+		setField(orderBatchWriter, "orderProperties", orderProperties);
+	}
+
+	@AfterEach
+	void tearDown() {
+		orderBatchWriter.destroy();
+	}
+
+	@Test
+	void flushesAPartialBatchOnceTheMaxDelayPasses() {
+		orderProperties.setWriteBehindEnabled(true);
+		orderProperties.setWriteBehindBatchSize(100);
+		orderProperties.setWriteBehindMaxDelay(50);
+		orderBatchWriter.init();
+
+		List<Order> saved = Flux.merge(insert("ORD-1"), insert("ORD-2"), insert("ORD-3"))
+				.collectList()
+				.block(Duration.ofSeconds(5));
+
+		assertThat(saved).extracting(Order::getOrderId).containsExactlyInAnyOrder("ORD-1", "ORD-2", "ORD-3");
+		assertThat(bulkInserts).hasSize(1);
+		assertThat(bulkInserts.get(0)).extracting(document -> document.getString("orderId").getValue())
+				.containsExactlyInAnyOrder("ORD-1", "ORD-2", "ORD-3");
+	}
+
+	@Test
+	void flushesAFullBatchWithoutWaitingForTheMaxDelay() {
+		orderProperties.setWriteBehindEnabled(true);
+		orderProperties.setWriteBehindBatchSize(2);
+		orderProperties.setWriteBehindMaxDelay(60_000);
+		orderBatchWriter.init();
+
+		List<Order> saved = Flux.merge(insert("ORD-1"), insert("ORD-2"))
+				.collectList()
+				.block(Duration.ofSeconds(5));
+
+		assertThat(saved).hasSize(2);
+		assertThat(bulkInserts).hasSize(1);
+	}
+
+	@Test
+	void mapsBulkWriteErrorsToTheOrdersAtTheirIndexes() {
+		insertResult = () -> Mono.error(new MongoBulkWriteException(BulkWriteResult.unacknowledged(),
+				List.of(new BulkWriteError(11000, "E11000 duplicate key", new BsonDocument(), 1),
+						new BulkWriteError(121, "Document failed validation", new BsonDocument(), 2)),
+				null, new ServerAddress(), Set.of()));
+
+		List<OrderBatchWriter.InsertResult> results = orderBatchWriter
+				.insertAll(List.of(newOrder("ORD-1"), newOrder("ORD-2"), newOrder("ORD-3")))
+				.block();
+
+		assertThat(results).extracting(result -> result.getOrder().getOrderId()).containsExactly("ORD-1", "ORD-2", "ORD-3");
+		assertThat(results.get(0).getError()).isNull();
+		assertThat(results.get(1).isDuplicate()).isTrue();
+		assertThat(results.get(1).getError()).isInstanceOf(DuplicateKeyException.class).hasMessageContaining("ORD-2");
+		assertThat(results.get(2).isDuplicate()).isFalse();
+		assertThat(results.get(2).getError()).isInstanceOf(IllegalStateException.class).hasMessageContaining("ORD-3");
+	}
+
+	@Test
+	void failsEveryOrderWhenTheWholeBulkWriteFails() {
+		MongoSocketReadTimeoutException timeout = new MongoSocketReadTimeoutException("Timed out", new ServerAddress(), null);
+		insertResult = () -> Mono.error(timeout);
+
+		List<OrderBatchWriter.InsertResult> results = orderBatchWriter
+				.insertAll(List.of(newOrder("ORD-1"), newOrder("ORD-2")))
+				.block();
+
+		assertThat(results).hasSize(2).allSatisfy(result -> assertThat(result.getError()).isSameAs(timeout));
+	}
+
+	@Test
+	void completesEachCallerWithItsOwnResult() {
+		orderProperties.setWriteBehindEnabled(true);
+		orderProperties.setWriteBehindBatchSize(2);
+		orderProperties.setWriteBehindMaxDelay(60_000);
+		orderBatchWriter.init();
+		insertResult = () -> Mono.error(new MongoBulkWriteException(BulkWriteResult.unacknowledged(),
+				List.of(new BulkWriteError(11000, "E11000 duplicate key", new BsonDocument(), 1)),
+				null, new ServerAddress(), Set.of()));
+
+		Mono<Order> first = insert("ORD-1").cache();
+		Mono<Order> second = insert("ORD-2").onErrorResume(DuplicateKeyException.class, e -> Mono.empty()).cache();
+		first.subscribe();
+		second.subscribe();
+
+		assertThat(first.block(Duration.ofSeconds(5)).getOrderId()).isEqualTo("ORD-1");
+		assertThat(second.block(Duration.ofSeconds(5))).isNull();
+	}
+
+	private Mono<Order> insert(String orderId) {
+		return orderBatchWriter.insert(newOrder(orderId));
+	}
+
+	private static OrderCodec.NewOrder newOrder(String orderId) {
+		return OrderCodec.newOrder(request(orderId), "PENDING");
+	}
+
+	private static CreateOrderRequest request(String orderId) {
+		return CreateOrderRequest.newBuilder()
+				.setOrderId(orderId)
+				.setCustomerId("CUST-1")
+				.setCustomerPhone("+51987654321")
+				.addItems(OrderItem.newBuilder().setItemId("ITEM-1").setProductName("Chip").setQuantity(1).setPrice(10.0))
+				.build();
+	}
+}
@@ -0,0 +1,115 @@
+package com.hacom.telecom.order_processing_service.service;
+
+import com.hacom.telecom.order_processing_service.config.OrderProperties;
+import com.hacom.telecom.order_processing_service.model.Order;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+class OrderCacheTest {
+
+	private final OrderProperties orderProperties = new OrderProperties();
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	// Mongo reads done by the loader
+	private final AtomicInteger loads = new AtomicInteger();
+	private OrderCache orderCache;
+
+	@BeforeEach
+	void setUp() {
+		orderCache = new OrderCache();
+		setField(orderCache, "orderProperties", orderProperties);
+		setField(orderCache, "meterRegistry", meterRegistry);
+	}
+
+	@Test
+	void missLoadsFromMongoOnceAndTheNextReadIsAHit() {
+		orderCache.init();
+
+		Order first = orderCache.get("ORD-1", this::load).block();
+		Order second = orderCache.get("ORD-1", this::load).block();
+
+		assertThat(first.getOrderId()).isEqualTo("ORD-1");
+		assertThat(second).isSameAs(first);
+		assertThat(loads).hasValue(1);
+		assertThat(meterRegistry.get("cache.gets").tag("cache", "orders").tag("result", "miss").functionCounter().count()).isEqualTo(1);
+		assertThat(meterRegistry.get("cache.gets").tag("cache", "orders").tag("result", "hit").functionCounter().count()).isEqualTo(1);
+	}
+
+	@Test
+	void missingOrderIsNotCached() {
+		orderCache.init();
+		Function<String, Mono<Order>> notFound = orderId -> Mono.fromSupplier(() -> {
+			loads.incrementAndGet();
+			return null;
+		});
+
+		assertThat(orderCache.get("ORD-404", notFound).block()).isNull();
+		assertThat(orderCache.get("ORD-404", notFound).block()).isNull();
+
+		assertThat(loads).hasValue(2);
+	}
+
+	@Test
+	void concurrentMissesShareOneQuery() {
+		orderCache.init();
+		Sinks.One<Order> query = Sinks.one();
+		Function<String, Mono<Order>> slow = orderId -> {
+			loads.incrementAndGet();
+			return query.asMono();
+		};
+
+		Mono<Order> first = orderCache.get("ORD-1", slow).cache();
+		Mono<Order> second = orderCache.get("ORD-1", slow).cache();
+		first.subscribe();
+		second.subscribe();
+		query.tryEmitValue(order("ORD-1"));
+
+		assertThat(List.of(first.block(Duration.ofSeconds(5)), second.block(Duration.ofSeconds(5))))
+				.extracting(Order::getOrderId).containsExactly("ORD-1", "ORD-1");
+		assertThat(loads).hasValue(1);
+	}
+
+	@Test
+	void invalidatedEntryIsReadAgain() {
+		orderCache.init();
+
+		orderCache.get("ORD-1", this::load).block();
+		orderCache.invalidate("ORD-1");
+		orderCache.get("ORD-1", this::load).block();
+
+		assertThat(loads).hasValue(2);
+	}
+
+	@Test
+	void disabledCacheAlwaysReadsMongo() {
+		orderProperties.setCacheMaxSize(0);
+		orderCache.init();
+
+		orderCache.get("ORD-1", this::load).block();
+		orderCache.get("ORD-1", this::load).block();
+		orderCache.invalidate("ORD-1");
+
+		assertThat(loads).hasValue(2);
+	}
+
+	private Mono<Order> load(String orderId) {
+		return Mono.fromSupplier(() -> {
+			loads.incrementAndGet();
+			return order(orderId);
+		});
+	}
+
+	private static Order order(String orderId) {
+		return new Order(orderId, "CUST-1", "+51987654321", List.of(), "PENDING");
+	}
+}
@@ -0,0 +1,177 @@
+package com.hacom.telecom.order_processing_service.service;
+
+import com.hacom.telecom.order_processing_service.config.MongoConfig;
+import com.hacom.telecom.order_processing_service.config.PipelineProperties;
+import com.hacom.telecom.order_processing_service.grpc.CreateOrderRequest;
+import com.hacom.telecom.order_processing_service.model.Order;
+import com.hacom.telecom.order_processing_service.model.OrderItem;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+class OrderCodecTest {
+
+	private static final OffsetDateTime TS = OffsetDateTime.parse("2026-03-01T12:34:56.789Z");
+
+	private final OrderCodec orderCodec = new OrderCodec();
+	private MappingMongoConverter springConverter;
+
+	@BeforeEach
+	void setUp() {
+		// Spring Data's converter as the application configures it
+		MongoCustomConversions conversions = new MongoConfig().customConversions();
+		MongoMappingContext mappingContext = new MongoMappingContext();
+		mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+		mappingContext.afterPropertiesSet();
+		springConverter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+		springConverter.setCustomConversions(conversions);
+		springConverter.afterPropertiesSet();
+	}
+
+	@Test
+	void encodesTheDocumentSpringDataWrites() {
+		Order order = order(new ObjectId().toHexString());
+
+		Document expected = new Document();
+		springConverter.write(order, expected);
+		expected.remove("_class");
+
+		assertThat(toDocument(new RawBsonDocument(order, orderCodec))).isEqualTo(expected);
+	}
+
+	@Test
+	void keepsAStringIdThatIsNotAnObjectId() {
+		Order order = order("legacy-42");
+
+		Document expected = new Document();
+		springConverter.write(order, expected);
+		expected.remove("_class");
+		Document encoded = toDocument(new RawBsonDocument(order, orderCodec));
+
+		assertThat(encoded).isEqualTo(expected);
+		assertThat(encoded.get("_id")).isEqualTo("legacy-42");
+		assertThat(decode(encoded).getId()).isEqualTo("legacy-42");
+	}
+
+	@Test
+	void decodesWhatSpringDataWrites() {
+		String id = new ObjectId().toHexString();
+		Document written = new Document();
+		springConverter.write(order(id), written);
+
+		Order decoded = decode(written);
+
+		assertOrder(decoded, id);
+	}
+
+	@Test
+	void springDataReadsWhatTheCodecWrites() {
+		String id = new ObjectId().toHexString();
+		Document encoded = toDocument(new RawBsonDocument(order(id), orderCodec));
+
+		assertOrder(springConverter.read(Order.class, encoded), id);
+	}
+
+	@Test
+	void readsIntegerAndLongNumbersInItems() {
+		Document document = new Document("_id", "ORD-DOC-1")
+				.append("_class", Order.class.getName())
+				.append("orderId", "ORD-1")
+				.append("items", List.of(
+						new Document("itemId", "ITEM-1").append("productName", "Chip").append("quantity", 2).append("price", 10),
+						new Document("itemId", "ITEM-2").append("productName", "Plan").append("quantity", 1L).append("price", 25L)))
+				.append("status", "PENDING")
+				.append("ts", Date.from(TS.toInstant()));
+
+		Order decoded = decode(document);
+
+		assertThat(decoded.getId()).isEqualTo("ORD-DOC-1");
+		assertThat(decoded.getItems()).extracting(OrderItem::getQuantity).containsExactly(2, 1);
+		assertThat(decoded.getItems()).extracting(OrderItem::getPrice).containsExactly(10.0, 25.0);
+		assertThat(decoded.getTs()).isEqualTo(TS);
+	}
+
+	@Test
+	void newOrderFromTheRequestOrThePackedOrderWritesTheSameDocument() {
+		OrderPacker orderPacker = new OrderPacker();
+		setField(orderPacker, "pipelineProperties", new PipelineProperties());
+		setField(orderPacker, "meterRegistry", new SimpleMeterRegistry());
+		orderPacker.init();
+
+		OrderCodec.NewOrder fromRequest = OrderCodec.newOrder(request("ORD-1"), "PENDING");
+		OrderCodec.NewOrder fromPacked = OrderCodec.newOrder(orderPacker.pack(request("ORD-1")), "PENDING");
+
+		Document requestDocument = toDocument(fromRequest.getDocument());
+		assertThat(withoutIdAndTs(toDocument(fromPacked.getDocument()))).isEqualTo(withoutIdAndTs(requestDocument));
+
+		Order read = springConverter.read(Order.class, toDocument(fromRequest.getDocument()));
+		assertThat(read.getId()).isEqualTo(fromRequest.getOrder().getId());
+		assertThat(read.getTs().toInstant().toEpochMilli()).isEqualTo(fromRequest.getOrder().getTs().toInstant().toEpochMilli());
+		assertThat(read.getItems()).extracting(OrderItem::getPrice).containsExactly(10.0);
+	}
+
+	private static Order order(String id) {
+		Order order = new Order("ORD-1", "CUST-1", "+51987654321", List.of(
+				new OrderItem("ITEM-1", "Chip", 2, 10.0),
+				new OrderItem("ITEM-2", "Plan", 1, 25.5)), "PENDING");
+		order.setId(id);
+		order.setTs(TS);
+		return order;
+	}
+
+	private static void assertOrder(Order order, String id) {
+		assertThat(order.getId()).isEqualTo(id);
+		assertThat(order.getOrderId()).isEqualTo("ORD-1");
+		assertThat(order.getCustomerId()).isEqualTo("CUST-1");
+		assertThat(order.getCustomerPhoneNumber()).isEqualTo("+51987654321");
+		assertThat(order.getStatus()).isEqualTo("PENDING");
+		assertThat(order.getTs().toInstant()).isEqualTo(Instant.parse("2026-03-01T12:34:56.789Z"));
+		assertThat(order.getItems()).extracting(OrderItem::getItemId, OrderItem::getProductName, OrderItem::getQuantity, OrderItem::getPrice)
+				.containsExactly(
+						tuple("ITEM-1", "Chip", 2, 10.0),
+						tuple("ITEM-2", "Plan", 1, 25.5));
+	}
+
+	private Order decode(Document document) {
+		RawBsonDocument raw = new RawBsonDocument(document, new DocumentCodec());
+		return orderCodec.decode(raw.asBsonReader(), DecoderContext.builder().build());
+	}
+
+	private static Document toDocument(RawBsonDocument raw) {
+		return raw.decode(new DocumentCodec());
+	}
+
+	private static Document withoutIdAndTs(Document document) {
+		document.remove("_id");
+		document.remove("ts");
+		return document;
+	}
+
+	private static CreateOrderRequest request(String orderId) {
+		return CreateOrderRequest.newBuilder()
+				.setOrderId(orderId)
+				.setCustomerId("CUST-1")
+				.setCustomerPhone("+51987654321")
+				.addItems(com.hacom.telecom.order_processing_service.grpc.OrderItem.newBuilder()
+						.setItemId("ITEM-1").setProductName("Chip").setQuantity(1).setPrice(10.0))
+				.build();
+	}
+}
@@ -0,0 +1,184 @@
+package com.hacom.telecom.order_processing_service.service;
+
+import com.hacom.telecom.order_processing_service.model.Order;
+import com.hacom.telecom.order_processing_service.model.OrderCountBucket;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+class OrderCountRollupTest {
+
+	private static final long MINUTE = 60_000;
+	private static final long HOUR = 60 * MINUTE;
+	private static final long DAY = 24 * HOUR;
+	private static final long COVERED_UNTIL = Instant.parse("2026-03-01T12:00:00Z").toEpochMilli();
+
+	// ts of every order in the fake orders collection
+	private final List<Long> orders = new CopyOnWriteArrayList<>();
+	// bucket id -> count, as the last reconcile pass would have set it
+	private final Map<String, Long> buckets = new HashMap<>();
+	private final ReactiveMongoTemplate template = mock(ReactiveMongoTemplate.class);
+	private OrderCountRollup rollup;
+
+	@BeforeEach
+	void setUp() {
+		when(template.count(any(Query.class), eq(Order.class))).thenAnswer(invocation -> {
+			Document ts = invocation.<Query>getArgument(0).getQueryObject().get("ts", Document.class);
+			long from = ((Instant) ts.get("$gte")).toEpochMilli();
+			long to = ((Instant) ts.get("$lt")).toEpochMilli();
+			return Mono.just(orders.stream().filter(order -> order >= from && order < to).count());
+		});
+		when(template.aggregate(any(Aggregation.class), eq("order_counts"), eq(Document.class))).thenAnswer(invocation -> {
+			Document match = invocation.<Aggregation>getArgument(0).toPipeline(Aggregation.DEFAULT_CONTEXT).get(0).get("$match", Document.class);
+			long total = 0;
+			for (Document range : match.getList("$or", Document.class)) {
+				Document bucketStart = range.get("bucketStart", Document.class);
+				long from = ((Instant) bucketStart.get("$gte")).toEpochMilli();
+				long to = ((Instant) bucketStart.get("$lt")).toEpochMilli();
+				for (Map.Entry<String, Long> bucket : buckets.entrySet()) {
+					String[] id = bucket.getKey().split(":");
+					long start = Long.parseLong(id[1]);
+					if (id[0].equals(range.getString("granularity")) && start >= from && start < to) {
+						total += bucket.getValue();
+					}
+				}
+			}
+			return Flux.just(new Document("total", total));
+		});
+
+		rollup = new OrderCountRollup();
+		setField(rollup, "reactiveMongoTemplate", template);
+		setField(rollup, "collection", "order_counts");
+	}
+
+	@Test
+	void countsOnOrdersUntilTheFirstPassFinishes() {
+		orders.add(COVERED_UNTIL - DAY);
+		orders.add(COVERED_UNTIL - HOUR);
+		orders.add(COVERED_UNTIL + HOUR);
+
+		assertThat(count(COVERED_UNTIL - 2 * DAY, COVERED_UNTIL + 2 * DAY)).isEqualTo(3);
+		verify(template, never()).aggregate(any(Aggregation.class), anyString(), eq(Document.class));
+	}
+
+	@Test
+	void sumsBucketsBelowTheMarkAndCountsTheRestOnOrders() {
+		setField(rollup, "coveredUntil", COVERED_UNTIL);
+		// Partial minute at the start of the range, counted on orders
+		orders.add(COVERED_UNTIL - 2 * DAY - 30_000);
+		reconciled(COVERED_UNTIL - DAY - 5 * MINUTE, COVERED_UNTIL - HOUR, COVERED_UNTIL - 30 * MINUTE);
+		// Not reconciled yet, counted on orders
+		orders.add(COVERED_UNTIL + 30_000);
+		orders.add(COVERED_UNTIL + HOUR);
+
+		assertThat(count(COVERED_UNTIL - 2 * DAY - MINUTE, COVERED_UNTIL + 2 * DAY)).isEqualTo(6);
+		assertThat(count(COVERED_UNTIL - 2 * HOUR, COVERED_UNTIL)).isEqualTo(2);
+		assertThat(count(COVERED_UNTIL - 1, COVERED_UNTIL + DAY)).isEqualTo(2);
+	}
+
+	@Test
+	void closedMinutesAreReadFromTheBucketsNotTheOrders() {
+		setField(rollup, "coveredUntil", COVERED_UNTIL);
+		reconciled(COVERED_UNTIL - 10 * MINUTE);
+		// Moved out of its minute after the last pass: still counted there until the next one
+		orders.remove(Long.valueOf(COVERED_UNTIL - 10 * MINUTE));
+		orders.add(COVERED_UNTIL + MINUTE);
+
+		assertThat(count(COVERED_UNTIL - HOUR, COVERED_UNTIL)).isEqualTo(1);
+		assertThat(count(COVERED_UNTIL - HOUR, COVERED_UNTIL + HOUR)).isEqualTo(2);
+	}
+
+	/**
+	 * Orders with these ts, counted into their buckets
+	 */
+	private void reconciled(long... ts) {
+		for (long order : ts) {
+			orders.add(order);
+			buckets.merge(OrderCountBucket.id(OrderCountBucket.MINUTE, Math.floorDiv(order, MINUTE) * MINUTE), 1L, Long::sum);
+			buckets.merge(OrderCountBucket.id(OrderCountBucket.HOUR, Math.floorDiv(order, HOUR) * HOUR), 1L, Long::sum);
+			buckets.merge(OrderCountBucket.id(OrderCountBucket.DAY, Math.floorDiv(order, DAY) * DAY), 1L, Long::sum);
+		}
+	}
+
+	/**
+	 * Orders with start < ts < end
+	 */
+	private long count(long start, long end) {
+		return rollup.count(at(start), at(end)).block();
+	}
+
+	private static OffsetDateTime at(long millis) {
+		return Instant.ofEpochMilli(millis).atOffset(ZoneOffset.UTC);
+	}
+
+	@Test
+	void decomposeCoversRangeExactlyOnce() {
+		long from = Instant.parse("2026-01-30T22:17:00Z").toEpochMilli();
+		long to = Instant.parse("2026-02-03T04:41:00Z").toEpochMilli();
+
+		List<OrderCountRollup.BucketRange> ranges = OrderCountRollup.decompose(from, to);
+
+		for (long minute = from - MINUTE; minute <= to; minute += MINUTE) {
+			long covering = 0;
+			for (OrderCountRollup.BucketRange range : ranges) {
+				if (range.from <= minute && minute < range.to) {
+					covering++;
+				}
+			}
+			assertThat(covering).as("minute %s", Instant.ofEpochMilli(minute))
+					.isEqualTo(minute >= from && minute < to ? 1 : 0);
+		}
+	}
+
+	@Test
+	void decomposeUsesCoarsestBuckets() {
+		long from = Instant.parse("2026-01-30T22:17:00Z").toEpochMilli();
+		long to = Instant.parse("2026-02-03T04:41:00Z").toEpochMilli();
+
+		List<OrderCountRollup.BucketRange> ranges = OrderCountRollup.decompose(from, to);
+
+		assertThat(ranges).anySatisfy(range -> {
+			assertThat(range.granularity).isEqualTo(OrderCountBucket.DAY);
+			assertThat(Instant.ofEpochMilli(range.from)).isEqualTo(Instant.parse("2026-01-31T00:00:00Z"));
+			assertThat(Instant.ofEpochMilli(range.to)).isEqualTo(Instant.parse("2026-02-03T00:00:00Z"));
+		});
+		assertThat(ranges).hasSize(5);
+	}
+
+	@Test
+	void shortRangeUsesMinutesOnly() {
+		long from = Instant.parse("2026-01-30T22:17:00Z").toEpochMilli();
+		long to = Instant.parse("2026-01-30T22:45:00Z").toEpochMilli();
+
+		List<OrderCountRollup.BucketRange> ranges = OrderCountRollup.decompose(from, to);
+
+		assertThat(ranges).singleElement().satisfies(range -> {
+			assertThat(range.granularity).isEqualTo(OrderCountBucket.MINUTE);
+			assertThat(range.from).isEqualTo(from);
+			assertThat(range.to).isEqualTo(to);
+		});
+	}
+}
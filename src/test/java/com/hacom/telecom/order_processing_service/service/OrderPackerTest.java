@@ -0,0 +1,95 @@
+package com.hacom.telecom.order_processing_service.service;
+
+import com.hacom.telecom.order_processing_service.config.PipelineProperties;
+import com.hacom.telecom.order_processing_service.grpc.CreateOrderRequest;
+import com.hacom.telecom.order_processing_service.grpc.OrderItem;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.util.ReflectionTestUtils.getField;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+class OrderPackerTest {
+
+	private static final CreateOrderRequest REQUEST = CreateOrderRequest.newBuilder()
+			.setOrderId("ORD-1")
+			.setCustomerId("CUST-1")
+			.setCustomerPhone("+51987654321")
+			.addItems(OrderItem.newBuilder().setItemId("ITEM-1").setProductName("Plan móvil").setQuantity(2).setPrice(19.99))
+			.addItems(OrderItem.newBuilder().setItemId("ITEM-2").setProductName("Chip").setQuantity(1).setPrice(0.125))
+			.build();
+
+	@Test
+	void roundTripsOnHeap() {
+		assertRoundTrip(packer(false, 100_000));
+	}
+
+	@Test
+	void roundTripsOffHeapWithFullDictionary() {
+		assertRoundTrip(packer(true, 1));
+	}
+
+	@Test
+	void keepsPhoneAfterRelease() {
+		PackedOrder packed = packer(true, 100_000).pack(REQUEST);
+
+		packed.release();
+
+		assertThat(packed.getCustomerPhone()).isEqualTo("+51987654321");
+	}
+
+	@Test
+	void startsANewDictionaryOnceTheCurrentOneIsFull() {
+		OrderPacker packer = packer(false, 4);
+		PackedOrder first = packer.pack(REQUEST);
+		OrderPacker.Dictionary full = dictionary(packer);
+		assertThat(full.isFull()).isTrue();
+
+		PackedOrder second = packer.pack(REQUEST);
+
+		OrderPacker.Dictionary current = dictionary(packer);
+		assertThat(current).isNotSameAs(full);
+		assertThat(current.size()).isEqualTo(4);
+		// Orders packed before the swap still read their values from the old dictionary
+		assertThat(items(first)).isEqualTo(items(second));
+		assertRoundTrip(packer);
+	}
+
+	private static void assertRoundTrip(OrderPacker packer) {
+		PackedOrder packed = packer.pack(REQUEST);
+
+		assertThat(packed.getOrderId()).isEqualTo("ORD-1");
+		assertThat(packed.getCustomerId()).isEqualTo("CUST-1");
+		assertThat(packed.getCustomerPhone()).isEqualTo("+51987654321");
+		assertThat(items(packed)).containsExactly("ITEM-1|Plan móvil|2|19.99", "ITEM-2|Chip|1|0.125");
+	}
+
+	@SuppressWarnings("unchecked")
+	private static OrderPacker.Dictionary dictionary(OrderPacker packer) {
+		return ((AtomicReference<OrderPacker.Dictionary>) getField(packer, "dictionary")).get();
+	}
+
+	private static List<String> items(PackedOrder packed) {
+		List<String> items = new ArrayList<>();
+		packed.forEachItem((itemId, productName, quantity, price) -> items.add(itemId + "|" + productName + "|" + quantity + "|" + price));
+		return items;
+	}
+
+	private static OrderPacker packer(boolean offHeap, int maxInternedIds) {
+		PipelineProperties pipelineProperties = new PipelineProperties();
+		pipelineProperties.setOffHeapEnabled(offHeap);
+		pipelineProperties.setOffHeapSlabBytes(64 * 1024);
+		pipelineProperties.setMaxInternedIds(maxInternedIds);
+		OrderPacker packer = new OrderPacker();
+		setField(packer, "pipelineProperties", pipelineProperties);
+		setField(packer, "meterRegistry", new SimpleMeterRegistry());
+		packer.init();
+		return packer;
+	}
+
+}
@@ -0,0 +1,308 @@
+package com.hacom.telecom.order_processing_service.service;
+
+import com.hacom.telecom.order_processing_service.config.ActorProperties;
+import com.hacom.telecom.order_processing_service.config.AkkaConfig;
+import com.hacom.telecom.order_processing_service.config.MetricsConfig;
+import com.hacom.telecom.order_processing_service.config.OrderProperties;
+import com.hacom.telecom.order_processing_service.config.PipelineProperties;
+import com.hacom.telecom.order_processing_service.grpc.CreateOrderRequest;
+import com.hacom.telecom.order_processing_service.grpc.CreateOrderResponse;
+import com.hacom.telecom.order_processing_service.grpc.OrderItem;
+import com.hacom.telecom.order_processing_service.model.Order;
+import com.hacom.telecom.order_processing_service.model.SmsOutboxEntry;
+import io.grpc.Context;
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+class OrderPipelineTest {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final StubOrderService orderService = new StubOrderService();
+	private final StubSmsOutboxService smsOutboxService = new StubSmsOutboxService();
+	private OrderPipeline orderPipeline;
+
+	@BeforeEach
+	void setUp() {
+		ActorProperties actorProperties = new ActorProperties();
+		PipelineProperties pipelineProperties = new PipelineProperties();
+		pipelineProperties.setMaxInFlight(16);
+		pipelineProperties.setIngestBuffer(16);
+
+		OrderStageTimers orderStageTimers = new OrderStageTimers();
+		setField(orderStageTimers, "meterRegistry", meterRegistry);
+		orderStageTimers.init();
+		OrderSummaryLogger orderSummaryLogger = new OrderSummaryLogger();
+		setField(orderSummaryLogger, "orderProperties", new OrderProperties());
+		OrderPacker orderPacker = new OrderPacker();
+		setField(orderPacker, "pipelineProperties", pipelineProperties);
+		setField(orderPacker, "meterRegistry", meterRegistry);
+		orderPacker.init();
+
+		orderPipeline = new OrderPipeline();
+		setField(orderPipeline, "actorSystem", new AkkaConfig().actorSystem(actorProperties));
+		setField(orderPipeline, "actorProperties", actorProperties);
+		setField(orderPipeline, "pipelineProperties", pipelineProperties);
+		setField(orderPipeline, "meterRegistry", meterRegistry);
+		setField(orderPipeline, "ordersRejectedCounter", new MetricsConfig().ordersRejectedCounter(meterRegistry));
+		setField(orderPipeline, "orderService", orderService);
+		setField(orderPipeline, "smsOutboxService", smsOutboxService);
+		setField(orderPipeline, "orderStageTimers", orderStageTimers);
+		setField(orderPipeline, "orderSummaryLogger", orderSummaryLogger);
+		setField(orderPipeline, "orderPacker", orderPacker);
+		orderPipeline.init();
+	}
+
+	@AfterEach
+	void tearDown() {
+		orderPipeline.shutdown();
+	}
+
+	@Test
+	void finishesOrderWhoseCallIsCancelledDuringPersist() throws Exception {
+		Context.CancellableContext context = Context.current().withCancellation();
+		RecordingObserver observer = new RecordingObserver();
+		CompletableFuture<Void> insert = orderService.holdInserts();
+
+		assertThat(orderPipeline.processOrder(request("ORD-1"), observer, context)).isTrue();
+		assertThat(orderService.insertIssued.await(5, TimeUnit.SECONDS)).isTrue();
+		context.cancel(null);
+		insert.complete(null);
+
+		await(() -> "PROCESSING".equals(orderService.statuses.get("ORD-1")) && smsOutboxService.entries.containsKey("ORD-1"));
+		assertThat(smsOutboxService.entries).containsEntry("ORD-1", "+51987654321");
+		await(() -> observer.error != null);
+		assertThat(observer.responses).isEmpty();
+		assertThat(Status.fromThrowable(observer.error).getCode()).isEqualTo(Status.Code.CANCELLED);
+		assertThat(shed("respond")).isEqualTo(1);
+		assertThat(meterRegistry.get("orders.inflight").gauge().value()).isZero();
+	}
+
+	@Test
+	void shedsOrderCancelledBeforePersist() throws Exception {
+		Context.CancellableContext context = Context.current().withCancellation();
+		context.cancel(null);
+		RecordingObserver observer = new RecordingObserver();
+
+		assertThat(orderPipeline.processOrder(request("ORD-1"), observer, context)).isTrue();
+
+		await(() -> observer.error != null);
+		assertThat(Status.fromThrowable(observer.error).getCode()).isEqualTo(Status.Code.CANCELLED);
+		assertThat(shed("ingest")).isEqualTo(1);
+		assertThat(orderService.insertIssued.getCount()).isEqualTo(1);
+		assertThat(smsOutboxService.entries).isEmpty();
+	}
+
+	@Test
+	void answersBeforeTheStatusUpdateAndOutboxInsert() throws Exception {
+		CompletableFuture<Void> notify = new CompletableFuture<>();
+		orderService.notifyGate = notify;
+		smsOutboxService.notifyGate = notify;
+		RecordingObserver observer = new RecordingObserver();
+
+		assertThat(orderPipeline.processOrder(request("ORD-1"), observer, Context.current())).isTrue();
+
+		await(() -> observer.completed);
+		assertThat(observer.responses).extracting(CreateOrderResponse::getStatus).containsExactly("PROCESSING");
+		assertThat(orderService.statuses).containsEntry("ORD-1", "PENDING");
+		assertThat(smsOutboxService.entries).isEmpty();
+		assertThat(meterRegistry.get("orders.inflight").gauge().value()).isZero();
+
+		notify.complete(null);
+		await(() -> "PROCESSING".equals(orderService.statuses.get("ORD-1")) && smsOutboxService.entries.containsKey("ORD-1"));
+		assertThat(lifecycle(OrderStageTimers.CREATED)).isEqualTo(1);
+	}
+
+	@Test
+	void answersADuplicateWithTheExistingOrder() throws Exception {
+		orderService.statuses.put("ORD-1", "PROCESSING");
+		RecordingObserver observer = new RecordingObserver();
+
+		assertThat(orderPipeline.processOrder(request("ORD-1"), observer, Context.current())).isTrue();
+
+		await(() -> observer.completed);
+		assertThat(observer.responses).extracting(CreateOrderResponse::getOrderId).containsExactly("ORD-1");
+		assertThat(lifecycle(OrderStageTimers.DUPLICATE)).isEqualTo(1);
+		assertThat(lifecycle(OrderStageTimers.CREATED)).isZero();
+		// Still goes through notify, where the conditional PENDING update leaves it alone
+		await(() -> statusUpdates("unchanged") == 1);
+		assertThat(orderService.statuses).containsEntry("ORD-1", "PROCESSING");
+	}
+
+	@Test
+	void answersAnInsertErrorAndSkipsNotify() throws Exception {
+		orderService.insertError = new IllegalStateException("write concern timeout");
+		RecordingObserver observer = new RecordingObserver();
+
+		assertThat(orderPipeline.processOrder(request("ORD-1"), observer, Context.current())).isTrue();
+
+		await(() -> observer.completed);
+		assertThat(observer.responses).singleElement().satisfies(response -> {
+			assertThat(response.getStatus()).isEqualTo("ERROR");
+			assertThat(response.getMessage()).contains("write concern timeout");
+		});
+		assertThat(lifecycle(OrderStageTimers.ERROR)).isEqualTo(1);
+		Thread.sleep(100);
+		assertThat(smsOutboxService.entries).isEmpty();
+		assertThat(meterRegistry.get("orders.pipeline.queue").tag("stage", "notify").gauge().value()).isZero();
+	}
+
+	@Test
+	void releasesTheSlotAndNotifiesWhenTheResponseCannotBeWritten() throws Exception {
+		RecordingObserver observer = new RecordingObserver() {
+			@Override
+			public void onNext(CreateOrderResponse response) {
+				throw new IllegalStateException("call already closed");
+			}
+		};
+
+		assertThat(orderPipeline.processOrder(request("ORD-1"), observer, Context.current())).isTrue();
+
+		await(() -> "PROCESSING".equals(orderService.statuses.get("ORD-1")) && smsOutboxService.entries.containsKey("ORD-1"));
+		assertThat(meterRegistry.get("orders.inflight").gauge().value()).isZero();
+	}
+
+	@Test
+	void batchReservationsShareTheInFlightBudget() {
+		assertThat(orderPipeline.reserve(10)).isTrue();
+		assertThat(orderPipeline.reserve(7)).isFalse();
+		assertThat(orderPipeline.reserve(6)).isTrue();
+
+		assertThat(orderPipeline.processOrder(request("ORD-1"), new RecordingObserver(), Context.current())).isFalse();
+		assertThat(meterRegistry.get("orders.rejected.total").counter().count()).isEqualTo(8);
+
+		orderPipeline.release(16);
+		assertThat(meterRegistry.get("orders.inflight").gauge().value()).isZero();
+	}
+
+	private long lifecycle(String outcome) {
+		return meterRegistry.get("orders.lifecycle.duration").tag("outcome", outcome).timer().count();
+	}
+
+	private long statusUpdates(String outcome) {
+		return meterRegistry.get("orders.stage.duration").tag("stage", "status_update").tag("outcome", outcome).timer().count();
+	}
+
+	private double shed(String stage) {
+		return meterRegistry.get("orders.shed.total").tag("stage", stage).tag("reason", "cancelled").counter().count();
+	}
+
+	static CreateOrderRequest request(String orderId) {
+		return CreateOrderRequest.newBuilder()
+				.setOrderId(orderId)
+				.setCustomerId("CUST-1")
+				.setCustomerPhone("+51987654321")
+				.addItems(OrderItem.newBuilder().setItemId("ITEM-1").setProductName("Chip").setQuantity(1).setPrice(10.0))
+				.build();
+	}
+
+	static void await(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!condition.getAsBoolean()) {
+			assertThat(System.nanoTime()).as("condition not met within 5s").isLessThan(deadline);
+			Thread.sleep(10);
+		}
+	}
+
+	/**
+	 * Keeps statuses in memory; inserts can be held open to cancel the call mid-persist, and an
+	 * orderId already in statuses comes back as the existing order, like a duplicate key would
+	 */
+	static class StubOrderService extends OrderService {
+
+		final Map<String, String> statuses = new ConcurrentHashMap<>();
+		final CountDownLatch insertIssued = new CountDownLatch(1);
+		volatile CompletableFuture<Void> notifyGate = CompletableFuture.completedFuture(null);
+		volatile RuntimeException insertError;
+		private volatile CompletableFuture<Void> gate = CompletableFuture.completedFuture(null);
+
+		CompletableFuture<Void> holdInserts() {
+			gate = new CompletableFuture<>();
+			return gate;
+		}
+
+		@Override
+		public Mono<Order> createOrder(OrderCodec.NewOrder newOrder) {
+			Order order = newOrder.getOrder();
+			return Mono.defer(() -> {
+				insertIssued.countDown();
+				return Mono.fromCompletionStage(gate);
+			}).then(Mono.fromSupplier(() -> {
+				if (insertError != null) {
+					throw insertError;
+				}
+				String existingStatus = statuses.putIfAbsent(order.getOrderId(), order.getStatus());
+				if (existingStatus != null) {
+					Order existing = new Order(order.getOrderId(), order.getCustomerId(), order.getCustomerPhoneNumber(), null, existingStatus);
+					existing.setDuplicate(true);
+					return existing;
+				}
+				return order;
+			}));
+		}
+
+		@Override
+		public Mono<String> updateStatus(String orderId, String expectedStatus, String newStatus) {
+			return Mono.fromCompletionStage(notifyGate).then(Mono.defer(() -> {
+				String[] previous = new String[1];
+				statuses.computeIfPresent(orderId, (id, status) -> {
+					previous[0] = status;
+					return expectedStatus.equals(status) ? newStatus : status;
+				});
+				return expectedStatus.equals(previous[0]) ? Mono.just(newStatus) : Mono.<String>empty();
+			}));
+		}
+	}
+
+	static class StubSmsOutboxService extends SmsOutboxService {
+
+		final Map<String, String> entries = new ConcurrentHashMap<>();
+		volatile CompletableFuture<Void> notifyGate = CompletableFuture.completedFuture(null);
+
+		@Override
+		public Mono<SmsOutboxEntry> enqueueOrderProcessedNotification(String orderId, String phoneNumber) {
+			return Mono.fromCompletionStage(notifyGate).then(Mono.fromSupplier(() -> {
+				entries.put(orderId, phoneNumber);
+				return new SmsOutboxEntry(orderId, phoneNumber);
+			}));
+		}
+	}
+
+	static class RecordingObserver implements StreamObserver<CreateOrderResponse> {
+
+		final List<CreateOrderResponse> responses = new CopyOnWriteArrayList<>();
+		volatile Throwable error;
+		volatile boolean completed;
+
+		@Override
+		public void onNext(CreateOrderResponse response) {
+			responses.add(response);
+		}
+
+		@Override
+		public void onError(Throwable t) {
+			error = t;
+		}
+
+		@Override
+		public void onCompleted() {
+			completed = true;
+		}
+	}
+}
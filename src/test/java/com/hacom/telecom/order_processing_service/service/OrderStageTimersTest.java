@@ -0,0 +1,66 @@
+package com.hacom.telecom.order_processing_service.service;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+class OrderStageTimersTest {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final OrderStageTimers orderStageTimers = new OrderStageTimers();
+
+	@BeforeEach
+	void setUp() {
+		setField(orderStageTimers, "meterRegistry", meterRegistry);
+		orderStageTimers.init();
+	}
+
+	@Test
+	void registersEveryStageAndOutcomeUpFront() {
+		assertThat(meterRegistry.find("orders.stage.duration").timers()).hasSize(8);
+		assertThat(meterRegistry.find("orders.lifecycle.duration").timers()).hasSize(3);
+		assertThat(meterRegistry.find("sms.submit.duration").timers()).hasSize(3);
+		assertThat(meterRegistry.getMeters()).allSatisfy(meter -> assertThat(meter.getId().getTag("service")).isEqualTo("order-processing"));
+	}
+
+	@Test
+	void recordsEachOutcomeOnItsOwnTimer() {
+		long startedAt = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(20);
+
+		orderStageTimers.recordPersist(startedAt, OrderStageTimers.CREATED);
+		orderStageTimers.recordPersist(startedAt, OrderStageTimers.DUPLICATE);
+		orderStageTimers.recordPersist(startedAt, OrderStageTimers.DUPLICATE);
+		orderStageTimers.recordStatusUpdate(startedAt, false, true);
+		orderStageTimers.recordLifecycle(startedAt, OrderStageTimers.ERROR);
+		orderStageTimers.recordSmsSubmit(startedAt, false, true);
+
+		assertThat(stage("persist", OrderStageTimers.CREATED).count()).isEqualTo(1);
+		assertThat(stage("persist", OrderStageTimers.DUPLICATE).count()).isEqualTo(2);
+		assertThat(stage("persist", OrderStageTimers.ERROR).count()).isZero();
+		assertThat(stage("status_update", OrderStageTimers.ERROR).count()).isEqualTo(1);
+		assertThat(stage("status_update", "updated").count()).isZero();
+		assertThat(meterRegistry.get("orders.lifecycle.duration").tag("outcome", OrderStageTimers.ERROR).timer().count()).isEqualTo(1);
+		assertThat(meterRegistry.get("sms.submit.duration").tag("outcome", "throttled").timer().count()).isEqualTo(1);
+		assertThat(meterRegistry.get("sms.submit.duration").tag("outcome", "failed").timer().count()).isZero();
+	}
+
+	@Test
+	void measuresFromTheStartMark() {
+		long startedAt = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(50);
+
+		orderStageTimers.recordIngestWait(startedAt);
+
+		Timer ingestWait = stage("ingest_wait", "none");
+		assertThat(ingestWait.totalTime(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(50).isLessThan(5_000);
+	}
+
+	private Timer stage(String stage, String outcome) {
+		return meterRegistry.get("orders.stage.duration").tag("stage", stage).tag("outcome", outcome).timer();
+	}
+}
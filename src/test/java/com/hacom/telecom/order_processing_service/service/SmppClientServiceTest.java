@@ -0,0 +1,169 @@
+package com.hacom.telecom.order_processing_service.service;
+
+import com.cloudhopper.smpp.SmppConstants;
+import com.cloudhopper.smpp.SmppSession;
+import com.cloudhopper.smpp.pdu.PduResponse;
+import com.cloudhopper.smpp.pdu.SubmitSm;
+import com.cloudhopper.smpp.pdu.SubmitSmResp;
+import com.cloudhopper.smpp.type.SmppChannelException;
+import com.hacom.telecom.order_processing_service.config.SmppProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+class SmppClientServiceTest {
+
+	private final SmppProperties smppProperties = new SmppProperties();
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final SmppSessionPool smppSessionPool = mock(SmppSessionPool.class);
+	private final SmppSessionPool.PooledSession pooledSession = mock(SmppSessionPool.PooledSession.class);
+	private final SmppSession session = mock(SmppSession.class);
+	// SubmitSm PDUs written to the session, in send order; answered through their reference future
+	private final List<SubmitSm> submitted = new CopyOnWriteArrayList<>();
+	// Whether the pool has a session with a token and room in its window
+	private volatile boolean sessionAvailable = true;
+	private SmppClientService smppClientService;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		smppProperties.setEnabled(true);
+		when(smppSessionPool.acquire()).thenAnswer(invocation -> sessionAvailable ? pooledSession : null);
+		when(pooledSession.getSession()).thenReturn(session);
+		when(pooledSession.getName()).thenReturn("smsc:2775#0");
+		when(session.sendRequestPdu(any(SubmitSm.class), anyLong(), eq(false))).thenAnswer(invocation -> {
+			submitted.add(invocation.getArgument(0));
+			return null;
+		});
+
+		OrderStageTimers orderStageTimers = new OrderStageTimers();
+		setField(orderStageTimers, "meterRegistry", meterRegistry);
+		orderStageTimers.init();
+
+		smppClientService = new SmppClientService();
+		setField(smppClientService, "smppProperties", smppProperties);
+		setField(smppClientService, "smsSentCounter", meterRegistry.counter("sms.sent.total"));
+		setField(smppClientService, "smsFailedCounter", meterRegistry.counter("sms.failed.total"));
+		setField(smppClientService, "smsThrottledCounter", meterRegistry.counter("sms.throttled.total"));
+		setField(smppClientService, "meterRegistry", meterRegistry);
+		setField(smppClientService, "smppSessionPool", smppSessionPool);
+		setField(smppClientService, "orderStageTimers", orderStageTimers);
+		smppClientService.init();
+	}
+
+	@AfterEach
+	void tearDown() {
+		smppClientService.destroy();
+	}
+
+	@Test
+	void submitsAsynchronouslyAndCompletesOnTheSubmitSmResp() throws Exception {
+		CompletableFuture<Boolean> result = smppClientService.sendSms("+51987654321", "Your order ORD-1 has been processed")
+				.toCompletableFuture();
+
+		await(() -> submitted.size() == 1);
+		assertThat(submitted.get(0).getDestAddress().getAddress()).isEqualTo("+51987654321");
+		assertThat(result).isNotDone();
+		verify(pooledSession, never()).release();
+
+		answer(submitted.get(0), SmppConstants.STATUS_OK);
+
+		assertThat(result.get(5, TimeUnit.SECONDS)).isTrue();
+		verify(pooledSession).recordSubmit();
+		verify(pooledSession).release();
+		assertThat(meterRegistry.counter("sms.sent.total").count()).isEqualTo(1);
+	}
+
+	@Test
+	void keepsSeveralSubmitsInFlightAtOnce() throws Exception {
+		CompletableFuture<Boolean> first = smppClientService.sendSms("+51900000001", "one").toCompletableFuture();
+		CompletableFuture<Boolean> second = smppClientService.sendSms("+51900000002", "two").toCompletableFuture();
+
+		// Both written before either is answered
+		await(() -> submitted.size() == 2);
+		answer(submitted.get(1), SmppConstants.STATUS_OK);
+		answer(submitted.get(0), SmppConstants.STATUS_OK);
+
+		assertThat(first.get(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(second.get(5, TimeUnit.SECONDS)).isTrue();
+	}
+
+	@Test
+	void requeuesAThrottledSubmitAndSendsItAgain() throws Exception {
+		CompletableFuture<Boolean> result = smppClientService.sendSms("+51987654321", "hello").toCompletableFuture();
+
+		await(() -> submitted.size() == 1);
+		answer(submitted.get(0), SmppConstants.STATUS_THROTTLED);
+		await(() -> submitted.size() == 2);
+		answer(submitted.get(1), SmppConstants.STATUS_OK);
+
+		assertThat(result.get(5, TimeUnit.SECONDS)).isTrue();
+		verify(pooledSession).recordThrottled();
+		verify(pooledSession, times(2)).release();
+		assertThat(meterRegistry.counter("sms.throttled.total").count()).isEqualTo(1);
+	}
+
+	@Test
+	void channelFailureFailsTheSmsAndMarksTheSessionUnhealthy() throws Exception {
+		doThrow(new SmppChannelException("Channel is closed"))
+				.when(session).sendRequestPdu(any(SubmitSm.class), anyLong(), eq(false));
+
+		CompletableFuture<Boolean> result = smppClientService.sendSms("+51987654321", "hello").toCompletableFuture();
+
+		assertThat(result.get(5, TimeUnit.SECONDS)).isFalse();
+		verify(pooledSession).markUnhealthy(session, "Channel is closed");
+		verify(pooledSession).release();
+		assertThat(meterRegistry.counter("sms.failed.total").count()).isEqualTo(1);
+	}
+
+	@Test
+	void waitsInTheQueueWhileNoSessionHasRoom() throws Exception {
+		sessionAvailable = false;
+
+		CompletableFuture<Boolean> result = smppClientService.sendSms("+51987654321", "hello").toCompletableFuture();
+		Thread.sleep(100);
+		assertThat(submitted).isEmpty();
+
+		sessionAvailable = true;
+		await(() -> submitted.size() == 1);
+		answer(submitted.get(0), SmppConstants.STATUS_OK);
+
+		assertThat(result.get(5, TimeUnit.SECONDS)).isTrue();
+	}
+
+	/**
+	 * What the pool's session handler does when the SubmitSmResp arrives
+	 */
+	@SuppressWarnings("unchecked")
+	private static void answer(SubmitSm submit, int commandStatus) {
+		SubmitSmResp response = submit.createResponse();
+		response.setCommandStatus(commandStatus);
+		((CompletableFuture<PduResponse>) submit.getReferenceObject()).complete(response);
+	}
+
+	private static void await(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!condition.getAsBoolean()) {
+			assertThat(System.nanoTime()).as("condition not met within 5s").isLessThan(deadline);
+			Thread.sleep(10);
+		}
+	}
+}
@@ -0,0 +1,177 @@
+package com.hacom.telecom.order_processing_service.service;
+
+import com.cloudhopper.commons.util.windowing.Window;
+import com.cloudhopper.smpp.SmppSession;
+import com.cloudhopper.smpp.pdu.EnquireLink;
+import com.cloudhopper.smpp.pdu.EnquireLinkResp;
+import com.cloudhopper.smpp.pdu.PduRequest;
+import com.cloudhopper.smpp.pdu.PduResponse;
+import com.cloudhopper.smpp.type.SmppChannelException;
+import com.cloudhopper.smpp.type.SmppTimeoutException;
+import com.hacom.telecom.order_processing_service.config.SmppProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.util.ReflectionTestUtils.invokeMethod;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+class SmppSessionPoolTest {
+
+	private final SmppProperties smppProperties = new SmppProperties();
+	private final ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
+	private SmppSessionPool pool;
+
+	@BeforeEach
+	void setUp() {
+		smppProperties.setWindowSize(2);
+		smppProperties.setEnquireLinkInterval(30_000);
+		smppProperties.setEnquireLinkTimeout(100);
+
+		pool = new SmppSessionPool();
+		setField(pool, "smppProperties", smppProperties);
+		setField(pool, "meterRegistry", new SimpleMeterRegistry());
+		setField(pool, "scheduler", scheduler);
+	}
+
+	@Test
+	void acquirePicksTheSessionWithFewestSubmitsInFlightUpToTheWindowSize() {
+		SmppSessionPool.PooledSession first = pooled(0, bound());
+		SmppSessionPool.PooledSession second = pooled(1, bound());
+		setField(pool, "sessions", List.of(first, second));
+
+		assertThat(pool.acquire()).isSameAs(first);
+		assertThat(pool.acquire()).isSameAs(second);
+		assertThat(pool.acquire()).isSameAs(first);
+		assertThat(pool.acquire()).isSameAs(second);
+		// Both windows full
+		assertThat(pool.acquire()).isNull();
+
+		second.release();
+		assertThat(pool.acquire()).isSameAs(second);
+		first.refund();
+		assertThat(pool.acquire()).isSameAs(first);
+	}
+
+	@Test
+	void acquireSkipsSessionsThatAreNotBound() {
+		SmppSession unbound = bound();
+		when(unbound.isBound()).thenReturn(false);
+		SmppSessionPool.PooledSession down = pooled(0, unbound);
+		SmppSessionPool.PooledSession up = pooled(1, bound());
+		setField(pool, "sessions", List.of(down, up));
+
+		assertThat(pool.acquire()).isSameAs(up);
+		assertThat(pool.acquire()).isSameAs(up);
+		assertThat(pool.acquire()).isNull();
+		assertThat(pool.hasBoundSession()).isTrue();
+	}
+
+	@Test
+	void enquireLinkSkipsASessionWithRequestsInItsWindow() throws Exception {
+		SmppSession session = bound();
+		when(session.getSendWindow().getSize()).thenReturn(1);
+		SmppSessionPool.PooledSession pooledSession = pooled(0, session);
+
+		invokeMethod(pooledSession, "enquireLink");
+
+		verify(session, never()).sendRequestPdu(any(), anyLong(), eq(false));
+	}
+
+	@Test
+	void enquireLinkThatCannotGetAWindowSlotKeepsTheSession() throws Exception {
+		SmppSession session = bound();
+		doThrow(new SmppTimeoutException("Unable to accept offer within 100 ms"))
+				.when(session).sendRequestPdu(any(EnquireLink.class), anyLong(), eq(false));
+		SmppSessionPool.PooledSession pooledSession = pooled(0, session);
+
+		invokeMethod(pooledSession, "enquireLink");
+
+		assertThat(pooledSession.getSession()).isSameAs(session);
+		verify(session, never()).destroy();
+	}
+
+	@Test
+	void enquireLinkChannelFailureDropsTheSessionAndSchedulesARebind() throws Exception {
+		SmppSession session = bound();
+		doThrow(new SmppChannelException("Channel is closed"))
+				.when(session).sendRequestPdu(any(EnquireLink.class), anyLong(), eq(false));
+		SmppSessionPool.PooledSession pooledSession = pooled(0, session);
+
+		invokeMethod(pooledSession, "enquireLink");
+
+		assertThat(pooledSession.getSession()).isNull();
+		verify(session).destroy();
+		verify(scheduler).schedule(any(Runnable.class), eq(smppProperties.getRebindInitialBackoff()), eq(TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	void enquireLinkWithoutResponseDropsTheSession() throws Exception {
+		SmppSession session = bound();
+		SmppSessionPool.PooledSession pooledSession = pooled(0, session);
+
+		invokeMethod(pooledSession, "enquireLink");
+
+		verify(session).sendRequestPdu(any(EnquireLink.class), eq(100L), eq(false));
+		await(() -> pooledSession.getSession() == null);
+		verify(session).destroy();
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void answeredEnquireLinkKeepsTheSession() throws Exception {
+		SmppSession session = bound();
+		doAnswer(invocation -> {
+			EnquireLink enquireLink = invocation.getArgument(0);
+			EnquireLinkResp response = enquireLink.createResponse();
+			((CompletableFuture<PduResponse>) enquireLink.getReferenceObject()).complete(response);
+			return null;
+		}).when(session).sendRequestPdu(any(EnquireLink.class), anyLong(), eq(false));
+		SmppSessionPool.PooledSession pooledSession = pooled(0, session);
+
+		invokeMethod(pooledSession, "enquireLink");
+		Thread.sleep(200);
+
+		assertThat(pooledSession.getSession()).isSameAs(session);
+		verify(session, never()).destroy();
+	}
+
+	private SmppSessionPool.PooledSession pooled(int index, SmppSession session) {
+		SmppSessionPool.PooledSession pooledSession = pool.new PooledSession("smsc:2775", index);
+		setField(pooledSession, "session", session);
+		return pooledSession;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static SmppSession bound() {
+		SmppSession session = mock(SmppSession.class);
+		Window<Integer, PduRequest, PduResponse> window = mock(Window.class);
+		when(session.isBound()).thenReturn(true);
+		when(session.getSendWindow()).thenReturn(window);
+		return session;
+	}
+
+	private static void await(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!condition.getAsBoolean()) {
+			assertThat(System.nanoTime()).as("condition not met within 5s").isLessThan(deadline);
+			Thread.sleep(10);
+		}
+	}
+}
@@ -0,0 +1,187 @@
+package com.hacom.telecom.order_processing_service.service;
+
+import com.hacom.telecom.order_processing_service.config.OutboxProperties;
+import com.hacom.telecom.order_processing_service.model.SmsOutboxEntry;
+import com.mongodb.client.result.UpdateResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+class SmsOutboxServiceTest {
+
+	private final OutboxProperties outboxProperties = new OutboxProperties();
+	private final ReactiveMongoTemplate template = mock(ReactiveMongoTemplate.class);
+	private final SmppClientService smppClientService = mock(SmppClientService.class);
+	private final Counter deadCounter = new SimpleMeterRegistry().counter("sms.outbox.dead.total");
+	private SmsOutboxService smsOutboxService;
+
+	@BeforeEach
+	void setUp() {
+		when(template.updateFirst(any(Query.class), any(Update.class), eq(SmsOutboxEntry.class)))
+				.thenReturn(Mono.just(UpdateResult.acknowledged(1, 1L, null)));
+
+		smsOutboxService = new SmsOutboxService();
+		setField(smsOutboxService, "reactiveMongoTemplate", template);
+		setField(smsOutboxService, "smppClientService", smppClientService);
+		setField(smsOutboxService, "outboxProperties", outboxProperties);
+		setField(smsOutboxService, "smsOutboxDeadCounter", deadCounter);
+	}
+
+	@Test
+	void claimTakesALeaseAndCountsTheAttempt() {
+		due("OUT-1", 1);
+		sends(true);
+		Instant before = Instant.now();
+
+		assertThat(drainBatch()).isEqualTo(1);
+
+		ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+		ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+		verify(template).findAndModify(query.capture(), update.capture(), any(FindAndModifyOptions.class), eq(SmsOutboxEntry.class));
+		// Due PENDING entries, or SENDING entries whose lease has run out
+		List<Document> claimable = query.getValue().getQueryObject().getList("$and", Document.class);
+		assertThat(claimable.get(0)).isEqualTo(new Document("_id", "OUT-1"));
+		assertThat(claimable.get(1).getList("$or", Document.class)).extracting(clause -> clause.getString("status"))
+				.containsExactly(SmsOutboxEntry.PENDING, SmsOutboxEntry.SENDING);
+
+		Document set = update.getValue().getUpdateObject().get("$set", Document.class);
+		assertThat(set.getString("status")).isEqualTo(SmsOutboxEntry.SENDING);
+		assertThat((Instant) set.get("lockedUntil")).isCloseTo(before.plusMillis(outboxProperties.getLease()), within(1, ChronoUnit.SECONDS));
+		assertThat(update.getValue().getUpdateObject().get("$inc", Document.class).get("attempts")).isEqualTo(1);
+	}
+
+	@Test
+	void sentEntryIsCompletedOnlyUnderTheCurrentLease() {
+		due("OUT-1", 1);
+		sends(true);
+
+		drainBatch();
+
+		Document query = completion().getKey();
+		assertThat(query.getString("status")).isEqualTo(SmsOutboxEntry.SENDING);
+		assertThat(query.get("attempts")).isEqualTo(1);
+		Document set = completion().getValue().get("$set", Document.class);
+		assertThat(set.getString("status")).isEqualTo(SmsOutboxEntry.SENT);
+		// Starts the retention countdown of the TTL index
+		assertThat((Instant) set.get("finishedAt")).isCloseTo(Instant.now(), within(1, ChronoUnit.SECONDS));
+	}
+
+	@Test
+	void failedSendIsRetriedWithExponentialBackoff() {
+		due("OUT-1", 3);
+		sends(false);
+		Instant before = Instant.now();
+
+		drainBatch();
+
+		Document set = completion().getValue().get("$set", Document.class);
+		assertThat(set.getString("status")).isEqualTo(SmsOutboxEntry.PENDING);
+		assertThat(set).doesNotContainKey("finishedAt");
+		// initialBackoff x 2^(attempts - 1)
+		assertThat((Instant) set.get("nextAttemptAt")).isCloseTo(before.plusMillis(4 * outboxProperties.getInitialBackoff()),
+				within(1, ChronoUnit.SECONDS));
+	}
+
+	@Test
+	void backoffIsCappedAtMaxBackoff() {
+		due("OUT-1", 9);
+		sends(false);
+		outboxProperties.setMaxAttempts(20);
+		Instant before = Instant.now();
+
+		drainBatch();
+
+		Document set = completion().getValue().get("$set", Document.class);
+		assertThat((Instant) set.get("nextAttemptAt")).isCloseTo(before.plusMillis(outboxProperties.getMaxBackoff()),
+				within(1, ChronoUnit.SECONDS));
+	}
+
+	@Test
+	void entryIsDeadLetteredAfterMaxAttempts() {
+		due("OUT-1", outboxProperties.getMaxAttempts());
+		sends(false);
+
+		drainBatch();
+
+		Document set = completion().getValue().get("$set", Document.class);
+		assertThat(set.getString("status")).isEqualTo(SmsOutboxEntry.DEAD);
+		assertThat((Instant) set.get("finishedAt")).isCloseTo(Instant.now(), within(1, ChronoUnit.SECONDS));
+		assertThat(deadCounter.count()).isEqualTo(1);
+	}
+
+	@Test
+	void entryClaimedByAnotherDispatcherIsNotSent() {
+		SmsOutboxEntry candidate = entry("OUT-1", 0);
+		when(template.find(any(Query.class), eq(SmsOutboxEntry.class))).thenReturn(Flux.just(candidate));
+		when(template.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(SmsOutboxEntry.class)))
+				.thenReturn(Mono.empty());
+
+		assertThat(drainBatch()).isZero();
+
+		verify(smppClientService, never()).sendOrderProcessedNotification(anyString(), anyString());
+	}
+
+	/**
+	 * The entry is found due and claimed; attempts is its count after the claim incremented it
+	 */
+	private void due(String id, int attempts) {
+		SmsOutboxEntry claimed = entry(id, attempts);
+		claimed.setStatus(SmsOutboxEntry.SENDING);
+		when(template.find(any(Query.class), eq(SmsOutboxEntry.class))).thenReturn(Flux.just(entry(id, attempts - 1)));
+		when(template.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(SmsOutboxEntry.class)))
+				.thenReturn(Mono.just(claimed));
+	}
+
+	private void sends(boolean accepted) {
+		when(smppClientService.sendOrderProcessedNotification(anyString(), anyString()))
+				.thenReturn(CompletableFuture.completedFuture(accepted));
+	}
+
+	/**
+	 * Query and update of the write that completed the entry after the send
+	 */
+	private Map.Entry<Document, Document> completion() {
+		ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+		ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+		verify(template).updateFirst(query.capture(), update.capture(), eq(SmsOutboxEntry.class));
+		return Map.entry(query.getValue().getQueryObject(), update.getValue().getUpdateObject());
+	}
+
+	private long drainBatch() {
+		return ReflectionTestUtils.<Mono<Long>>invokeMethod(smsOutboxService, "drainBatch").block();
+	}
+
+	private static SmsOutboxEntry entry(String id, int attempts) {
+		SmsOutboxEntry entry = new SmsOutboxEntry("ORD-" + id, "+51987654321");
+		entry.setId(id);
+		entry.setAttempts(attempts);
+		return entry;
+	}
+}
@@ -0,0 +1,41 @@
+package com.hacom.telecom.order_processing_service.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketTest {
+
+	@Test
+	void allowsBurstThenLimits() {
+		TokenBucket bucket = new TokenBucket(100, 10, 1000);
+
+		int acquired = 0;
+		for (int i = 0; i < 50; i++) {
+			if (bucket.tryAcquire()) {
+				acquired++;
+			}
+		}
+
+		assertThat(acquired).isEqualTo(10);
+	}
+
+	@Test
+	void penalizeHalvesRate() {
+		TokenBucket bucket = new TokenBucket(100, 10, 60000);
+
+		bucket.penalize();
+
+		assertThat(bucket.getRate()).isLessThanOrEqualTo(51.0);
+	}
+
+	@Test
+	void zeroRateIsUnlimited() {
+		TokenBucket bucket = new TokenBucket(0, 0, 1000);
+
+		for (int i = 0; i < 1000; i++) {
+			assertThat(bucket.tryAcquire()).isTrue();
+		}
+	}
+
+}